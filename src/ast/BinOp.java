@@ -0,0 +1,63 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * An arithmetic operation on two expressions.
+ * <pre>&lt;expression&gt; &lt;add_operator&gt; &lt;term&gt;
+ *&lt;term&gt; &lt;multiply_operator&gt; &lt;factor&gt;</pre>
+ */
+public final class BinOp extends Expression {
+	/**
+	 * The arithmetic operators.
+	 */
+	public enum Operator {
+		ADD("+"), SUBTRACT("-"), MULTIPLY("*"), DIVIDE("/"), REMAINDER("%");
+
+		/** The symbol for this operator. */
+		public final String symbol;
+
+		private Operator(String symbol) {
+			this.symbol = symbol;
+		}
+
+		/**
+		 * Returns the operator with the given symbol.
+		 * @param symbol One of "+", "-", "*", "/" and "%".
+		 * @return The operator, or <code>null</code> if there is none.
+		 */
+		public static Operator forSymbol(String symbol) {
+			for (Operator operator : values()) {
+				if (operator.symbol.equals(symbol)) return operator;
+			}
+			return null;
+		}
+	}
+
+	/** The operator. */
+	public final Operator operator;
+	/** The left operand. */
+	public final Expression left;
+	/** The right operand. */
+	public final Expression right;
+
+	/**
+	 * Constructs an arithmetic operation.
+	 * @param operator The operator.
+	 * @param left The left operand.
+	 * @param right The right operand.
+	 */
+	public BinOp(Operator operator, Expression left, Expression right) {
+		super(NodeKind.BIN_OP);
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.OPERATOR, operator.symbol, left, right);
+	}
+}
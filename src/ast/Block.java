@@ -0,0 +1,36 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A sequence of commands.
+ * <pre>&lt;block&gt; ::= "{" { &lt;command&gt; } "}"</pre>
+ */
+public final class Block extends Node {
+	/** The commands, in order. */
+	public final List<Statement> statements;
+
+	/**
+	 * Constructs a block.
+	 * @param statements The commands in the block; the list is copied.
+	 */
+	public Block(List<Statement> statements) {
+		super(NodeKind.BLOCK);
+		this.statements = Collections.unmodifiableList(new ArrayList<Statement>(statements));
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		Tree.Builder<Token> tree = builder(TokenType.NAME, "block");
+		for (Statement statement : statements) {
+			tree.add(statement.toTree());
+		}
+		return tree.build();
+	}
+}
@@ -0,0 +1,40 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A procedure call.
+ * <pre>"call" &lt;name&gt; { &lt;expression&gt; } ";"</pre>
+ */
+public final class Call extends Statement {
+	/** The name of the procedure called. */
+	public final String name;
+	/** The arguments, in order. */
+	public final List<Expression> arguments;
+
+	/**
+	 * Constructs a procedure call.
+	 * @param name The name of the procedure called.
+	 * @param arguments The arguments; the list is copied.
+	 */
+	public Call(String name, List<Expression> arguments) {
+		super(NodeKind.CALL);
+		this.name = name;
+		this.arguments = Collections.unmodifiableList(new ArrayList<Expression>(arguments));
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		Tree.Builder<Token> tree = builder(TokenType.KEYWORD, "call").add(leaf(TokenType.NAME, name));
+		for (Expression argument : arguments) {
+			tree.add(argument.toTree());
+		}
+		return tree.build();
+	}
+}
@@ -0,0 +1,63 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A comparison of two expressions.
+ * <pre>&lt;expression&gt; &lt;comparator&gt; &lt;expression&gt;</pre>
+ */
+public final class Compare extends Condition {
+	/**
+	 * The comparators.
+	 */
+	public enum Operator {
+		LESS("<"), LESS_OR_EQUAL("<="), EQUAL("=="), NOT_EQUAL("!="),
+		GREATER_OR_EQUAL(">="), GREATER(">");
+
+		/** The symbol for this comparator. */
+		public final String symbol;
+
+		private Operator(String symbol) {
+			this.symbol = symbol;
+		}
+
+		/**
+		 * Returns the comparator with the given symbol.
+		 * @param symbol One of "&lt;", "&lt;=", "==", "!=", "&gt;=" and "&gt;".
+		 * @return The comparator, or <code>null</code> if there is none.
+		 */
+		public static Operator forSymbol(String symbol) {
+			for (Operator operator : values()) {
+				if (operator.symbol.equals(symbol)) return operator;
+			}
+			return null;
+		}
+	}
+
+	/** The comparator. */
+	public final Operator operator;
+	/** The left side. */
+	public final Expression left;
+	/** The right side. */
+	public final Expression right;
+
+	/**
+	 * Constructs a comparison.
+	 * @param operator The comparator.
+	 * @param left The left side.
+	 * @param right The right side.
+	 */
+	public Compare(Operator operator, Expression left, Expression right) {
+		super(NodeKind.COMPARE);
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.OPERATOR, operator.symbol, left, right);
+	}
+}
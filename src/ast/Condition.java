@@ -0,0 +1,10 @@
+package ast;
+
+/**
+ * A &lt;condition&gt;.
+ */
+public abstract class Condition extends Node {
+	Condition(NodeKind kind) {
+		super(kind);
+	}
+}
@@ -0,0 +1,44 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A procedure definition.
+ * <pre>&lt;procedure&gt; ::= "def" &lt;name&gt; { &lt;variable&gt; } &lt;block&gt;</pre>
+ */
+public final class Def extends Node {
+	/** The name of the procedure. */
+	public final String name;
+	/** The names of its parameters, in order. */
+	public final List<String> parameters;
+	/** Its body. */
+	public final Block body;
+
+	/**
+	 * Constructs a procedure definition.
+	 * @param name The name of the procedure.
+	 * @param parameters The names of its parameters; the list is copied.
+	 * @param body Its body.
+	 */
+	public Def(String name, List<String> parameters, Block body) {
+		super(NodeKind.DEF);
+		this.name = name;
+		this.parameters = Collections.unmodifiableList(new ArrayList<String>(parameters));
+		this.body = body;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		Tree.Builder<Token> header = builder(TokenType.NAME, "header").add(leaf(TokenType.NAME, name));
+		for (String parameter : parameters) {
+			header.add(leaf(TokenType.NAME, parameter));
+		}
+		return builder(TokenType.KEYWORD, "def").add(header.build()).add(body.toTree()).build();
+	}
+}
@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * The robot puts down a thing.
+ * <pre>"drop" &lt;thing&gt; ";"</pre>
+ */
+public final class Drop extends Statement {
+	/** The name of the thing. */
+	public final String thing;
+
+	/**
+	 * Constructs a "drop".
+	 * @param thing The name of the thing.
+	 */
+	public Drop(String thing) {
+		super(NodeKind.DROP);
+		this.thing = thing;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return builder(TokenType.KEYWORD, "drop").add(leaf(TokenType.NAME, thing)).build();
+	}
+}
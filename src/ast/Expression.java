@@ -0,0 +1,10 @@
+package ast;
+
+/**
+ * An arithmetic &lt;expression&gt;, &lt;term&gt; or &lt;factor&gt;.
+ */
+public abstract class Expression extends Node {
+	Expression(NodeKind kind) {
+		super(kind);
+	}
+}
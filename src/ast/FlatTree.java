@@ -0,0 +1,594 @@
+package ast;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A syntax tree packed into parallel arrays, for walking large programs
+ * quickly and in little memory. Each node is an index; its kind, first
+ * child, next sibling and payload are entries in four <code>int</code>
+ * arrays. Nodes are numbered in the order a depth-first walk meets them,
+ * so a walk reads the arrays from front to back.
+ * <p>
+ * The meaning of the payload depends on the kind of node:
+ * <ul>
+ *   <li>DEF, SET, CALL, TAKE, DROP, SEEING, HOLDING, VAR: the name, as an
+ *       index for <code>name(int)</code>.</li>
+ *   <li>LITERAL: the value.</li>
+ *   <li>BIN_OP, UNARY: the ordinal of the <code>BinOp.Operator</code>.</li>
+ *   <li>COMPARE: the ordinal of the <code>Compare.Operator</code>.</li>
+ *   <li>MOVE, TURN, SENSOR: the ordinal of the direction or reading.</li>
+ *   <li>Other kinds: zero.</li>
+ * </ul>
+ * Children are as in the node classes, in order; a DEF has a VAR child
+ * for each parameter, followed by its body.
+ */
+public final class FlatTree {
+	/** The index standing for "no node". */
+	public static final int NONE = -1;
+	private static final NodeKind[] KINDS = NodeKind.values();
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private int[] kind;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] payload;
+	private int size;
+	private final String[] names;
+
+	/**
+	 * Packs the syntax tree with the given root.
+	 * @param root The root of the tree; it becomes node 0.
+	 */
+	public FlatTree(Node root) {
+		kind = new int[64];
+		firstChild = new int[64];
+		nextSibling = new int[64];
+		payload = new int[64];
+		HashMap<String, Integer> nameIndex = new HashMap<String, Integer>();
+		add(root, nameIndex);
+		kind = Arrays.copyOf(kind, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		nextSibling = Arrays.copyOf(nextSibling, size);
+		payload = Arrays.copyOf(payload, size);
+		names = new String[nameIndex.size()];
+		for (String name : nameIndex.keySet()) {
+			names[nameIndex.get(name)] = name;
+		}
+	}
+
+	/**
+	 * Constructs a tree from its arrays, checking that they are
+	 * consistent: every node's kind and name are valid, and its first
+	 * child and next sibling (if any) come after it.
+	 * @throws IllegalArgumentException If they are not.
+	 */
+	private FlatTree(int[] kind, int[] firstChild, int[] nextSibling, int[] payload, String[] names) {
+		this.kind = kind;
+		this.firstChild = firstChild;
+		this.nextSibling = nextSibling;
+		this.payload = payload;
+		this.names = names;
+		size = kind.length;
+		for (int i = 0; i < size; i++) {
+			if (kind[i] < 0 || kind[i] >= KINDS.length
+					|| !follows(firstChild[i], i) || !follows(nextSibling[i], i)
+					|| (hasName(i) && (payload[i] < 0 || payload[i] >= names.length))) {
+				throw new IllegalArgumentException("Inconsistent node " + i);
+			}
+		}
+	}
+
+	private boolean follows(int node, int previous) {
+		return node == NONE || (node > previous && node < size);
+	}
+
+	private boolean hasName(int node) {
+		switch (kind(node)) {
+			case DEF: case SET: case CALL: case TAKE: case DROP:
+			case SEEING: case HOLDING: case VAR:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Appends the given node and, after it, its descendants; returns the
+	 * index of the node.
+	 */
+	private int add(Node node, HashMap<String, Integer> nameIndex) {
+		int index = newNode(node.kind);
+		int previous = NONE;
+		switch (node.kind) {
+			case PROGRAM: {
+				Program program = (Program) node;
+				previous = addChild(index, previous, program.main, nameIndex);
+				previous = addChildren(index, previous, program.procedures, nameIndex);
+				break;
+			}
+			case DEF: {
+				Def def = (Def) node;
+				payload[index] = nameIndex(def.name, nameIndex);
+				for (String parameter : def.parameters) {
+					previous = addChild(index, previous, new Var(parameter), nameIndex);
+				}
+				previous = addChild(index, previous, def.body, nameIndex);
+				break;
+			}
+			case BLOCK:
+				previous = addChildren(index, previous, ((Block) node).statements, nameIndex);
+				break;
+			case SET: {
+				Set set = (Set) node;
+				payload[index] = nameIndex(set.variable, nameIndex);
+				previous = addChild(index, previous, set.value, nameIndex);
+				break;
+			}
+			case REPEAT: {
+				Repeat repeat = (Repeat) node;
+				previous = addChild(index, previous, repeat.count, nameIndex);
+				previous = addChild(index, previous, repeat.body, nameIndex);
+				break;
+			}
+			case WHILE: {
+				While loop = (While) node;
+				previous = addChild(index, previous, loop.condition, nameIndex);
+				previous = addChild(index, previous, loop.body, nameIndex);
+				break;
+			}
+			case IF: {
+				If conditional = (If) node;
+				previous = addChild(index, previous, conditional.condition, nameIndex);
+				previous = addChild(index, previous, conditional.thenBlock, nameIndex);
+				if (conditional.elseBlock != null) {
+					previous = addChild(index, previous, conditional.elseBlock, nameIndex);
+				}
+				break;
+			}
+			case CALL: {
+				Call call = (Call) node;
+				payload[index] = nameIndex(call.name, nameIndex);
+				previous = addChildren(index, previous, call.arguments, nameIndex);
+				break;
+			}
+			case MOVE: {
+				Move move = (Move) node;
+				payload[index] = move.direction.ordinal();
+				previous = addChild(index, previous, move.distance, nameIndex);
+				break;
+			}
+			case TURN:
+				payload[index] = ((Turn) node).direction.ordinal();
+				break;
+			case TAKE:
+				payload[index] = nameIndex(((Take) node).thing, nameIndex);
+				break;
+			case DROP:
+				payload[index] = nameIndex(((Drop) node).thing, nameIndex);
+				break;
+			case BIN_OP: {
+				BinOp op = (BinOp) node;
+				payload[index] = op.operator.ordinal();
+				previous = addChild(index, previous, op.left, nameIndex);
+				previous = addChild(index, previous, op.right, nameIndex);
+				break;
+			}
+			case UNARY: {
+				Unary unary = (Unary) node;
+				payload[index] = unary.operator.ordinal();
+				previous = addChild(index, previous, unary.operand, nameIndex);
+				break;
+			}
+			case COMPARE: {
+				Compare compare = (Compare) node;
+				payload[index] = compare.operator.ordinal();
+				previous = addChild(index, previous, compare.left, nameIndex);
+				previous = addChild(index, previous, compare.right, nameIndex);
+				break;
+			}
+			case SEEING:
+				payload[index] = nameIndex(((Seeing) node).thing, nameIndex);
+				break;
+			case HOLDING:
+				payload[index] = nameIndex(((Holding) node).thing, nameIndex);
+				break;
+			case NOT:
+				previous = addChild(index, previous, ((Not) node).condition, nameIndex);
+				break;
+			case LITERAL:
+				payload[index] = ((Literal) node).value;
+				break;
+			case VAR:
+				payload[index] = nameIndex(((Var) node).name, nameIndex);
+				break;
+			case SENSOR:
+				payload[index] = ((Sensor) node).reading.ordinal();
+				break;
+			default:
+				break;
+		}
+		return index;
+	}
+
+	private int addChildren(int parent, int previous, List<? extends Node> children,
+	                        HashMap<String, Integer> nameIndex) {
+		for (Node child : children) {
+			previous = addChild(parent, previous, child, nameIndex);
+		}
+		return previous;
+	}
+
+	/**
+	 * Appends a child of the given parent after its child
+	 * <code>previous</code> (or first, if that is <code>NONE</code>),
+	 * and returns the index of the new child.
+	 */
+	private int addChild(int parent, int previous, Node child,
+	                     HashMap<String, Integer> nameIndex) {
+		int index = add(child, nameIndex);
+		if (previous == NONE) {
+			firstChild[parent] = index;
+		} else {
+			nextSibling[previous] = index;
+		}
+		return index;
+	}
+
+	private int newNode(NodeKind nodeKind) {
+		if (size == kind.length) {
+			int capacity = 2 * size;
+			kind = Arrays.copyOf(kind, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			payload = Arrays.copyOf(payload, capacity);
+		}
+		kind[size] = nodeKind.ordinal();
+		firstChild[size] = NONE;
+		nextSibling[size] = NONE;
+		return size++;
+	}
+
+	private static int nameIndex(String name, HashMap<String, Integer> nameIndex) {
+		Integer index = nameIndex.get(name);
+		if (index == null) {
+			index = nameIndex.size();
+			nameIndex.put(name, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the number of nodes in this tree.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the kind of the given node.
+	 * @param node The index of a node.
+	 * @return Its kind.
+	 */
+	public NodeKind kind(int node) {
+		return KINDS[kind[node]];
+	}
+
+	/**
+	 * Returns the first child of the given node.
+	 * @param node The index of a node.
+	 * @return The index of its first child, or <code>NONE</code>.
+	 */
+	public int firstChild(int node) {
+		return firstChild[node];
+	}
+
+	/**
+	 * Returns the next sibling of the given node.
+	 * @param node The index of a node.
+	 * @return The index of its next sibling, or <code>NONE</code>.
+	 */
+	public int nextSibling(int node) {
+		return nextSibling[node];
+	}
+
+	/**
+	 * Returns the payload of the given node; see the class comment
+	 * for its meaning.
+	 * @param node The index of a node.
+	 * @return Its payload.
+	 */
+	public int payload(int node) {
+		return payload[node];
+	}
+
+	/**
+	 * Returns the name held by the given node, which must be of a kind
+	 * whose payload is a name.
+	 * @param node The index of a node.
+	 * @return The name.
+	 */
+	public String name(int node) {
+		return names[payload[node]];
+	}
+
+	/**
+	 * Walks the whole tree depth first, calling the visitor at each node.
+	 * @param visitor The visitor.
+	 */
+	public void walk(FlatTreeVisitor visitor) {
+		walk(0, visitor);
+	}
+
+	/**
+	 * Walks the subtree with the given root depth first, calling the
+	 * visitor at each node. The walk uses no recursion, so any depth
+	 * of tree can be walked.
+	 * @param root The index of the root of the subtree.
+	 * @param visitor The visitor.
+	 */
+	public void walk(int root, FlatTreeVisitor visitor) {
+		int[] path = new int[16];
+		int depth = 0;
+		int node = root;
+		while (true) {
+			if (visitor.enter(this, node) && firstChild[node] != NONE) {
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, 2 * depth);
+				}
+				path[depth++] = node;
+				node = firstChild[node];
+				continue;
+			}
+			visitor.leave(this, node);
+			while (node != root && nextSibling[node] == NONE) {
+				node = path[--depth];
+				visitor.leave(this, node);
+			}
+			if (node == root) return;
+			node = nextSibling[node];
+		}
+	}
+
+	/**
+	 * Writes this tree: the number of nodes and of names, the names (each
+	 * as a length and that many bytes of UTF-8), and then each of the
+	 * four arrays in turn.
+	 * @param out Where to write the tree.
+	 * @throws IOException If it cannot be written.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(size);
+		out.writeInt(names.length);
+		for (String name : names) {
+			byte[] bytes = name.getBytes(UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		for (int[] array : new int[][] { kind, firstChild, nextSibling, payload }) {
+			for (int i = 0; i < size; i++) {
+				out.writeInt(array[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a tree written by <code>write</code>, leaving the buffer
+	 * positioned just after it.
+	 * @param in The buffer to read from.
+	 * @return The tree.
+	 * @throws IllegalArgumentException If the buffer does not hold a
+	 *         consistent tree.
+	 * @throws java.nio.BufferUnderflowException If the buffer ends too soon.
+	 */
+	static FlatTree read(ByteBuffer in) {
+		int size = in.getInt();
+		int nameCount = in.getInt();
+		if (size < 1 || nameCount < 0 || nameCount > in.remaining() / 4) {
+			throw new IllegalArgumentException("Bad counts: " + size + ", " + nameCount);
+		}
+		String[] names = new String[nameCount];
+		for (int i = 0; i < nameCount; i++) {
+			int length = in.getInt();
+			if (length < 0 || length > in.remaining()) {
+				throw new IllegalArgumentException("Bad name length: " + length);
+			}
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			names[i] = new String(bytes, UTF_8);
+		}
+		if (size > in.remaining() / 16) {
+			throw new IllegalArgumentException("Too few nodes: " + size);
+		}
+		IntBuffer ints = in.asIntBuffer();
+		int[][] arrays = new int[4][size];
+		for (int[] array : arrays) {
+			ints.get(array);
+		}
+		in.position(in.position() + 16 * size);
+		return new FlatTree(arrays[0], arrays[1], arrays[2], arrays[3], names);
+	}
+
+	/**
+	 * Returns the syntax tree of the subtree with the given root, as
+	 * node objects.
+	 * @param node The index of the root of the subtree.
+	 * @return The root node.
+	 * @throws IllegalArgumentException If a node lacks children its
+	 *         kind must have.
+	 */
+	public Node toNode(int node) {
+		int child = firstChild[node];
+		switch (kind(node)) {
+			case PROGRAM: {
+				Block main = (Block) toNode(require(child));
+				List<Def> procedures = new ArrayList<Def>();
+				for (child = nextSibling[child]; child != NONE; child = nextSibling[child]) {
+					procedures.add((Def) toNode(child));
+				}
+				return new Program(main, procedures);
+			}
+			case DEF: {
+				List<String> parameters = new ArrayList<String>();
+				for (require(child); nextSibling[child] != NONE; child = nextSibling[child]) {
+					parameters.add(name(child));
+				}
+				return new Def(name(node), parameters, (Block) toNode(child));
+			}
+			case BLOCK: {
+				List<Statement> statements = new ArrayList<Statement>();
+				for (; child != NONE; child = nextSibling[child]) {
+					statements.add((Statement) toNode(child));
+				}
+				return new Block(statements);
+			}
+			case SET:
+				return new Set(name(node), (Expression) toNode(require(child)));
+			case REPEAT:
+				return new Repeat((Expression) toNode(require(child)),
+				                  (Block) toNode(require(nextSibling[child])));
+			case WHILE:
+				return new While((Condition) toNode(require(child)),
+				                 (Block) toNode(require(nextSibling[child])));
+			case IF: {
+				int thenBlock = require(nextSibling[require(child)]);
+				int elseBlock = nextSibling[thenBlock];
+				return new If((Condition) toNode(child), (Block) toNode(thenBlock),
+				              elseBlock == NONE ? null : (Block) toNode(elseBlock));
+			}
+			case CALL: {
+				List<Expression> arguments = new ArrayList<Expression>();
+				for (; child != NONE; child = nextSibling[child]) {
+					arguments.add((Expression) toNode(child));
+				}
+				return new Call(name(node), arguments);
+			}
+			case MOVE:
+				return new Move(Move.Direction.values()[payload[node]], (Expression) toNode(require(child)));
+			case TURN:
+				return new Turn(Turn.Direction.values()[payload[node]]);
+			case TAKE:
+				return new Take(name(node));
+			case DROP:
+				return new Drop(name(node));
+			case STOP:
+				return new Stop();
+			case BIN_OP:
+				return new BinOp(BinOp.Operator.values()[payload[node]],
+				                 (Expression) toNode(require(child)),
+				                 (Expression) toNode(require(nextSibling[child])));
+			case UNARY:
+				return new Unary(BinOp.Operator.values()[payload[node]], (Expression) toNode(require(child)));
+			case COMPARE:
+				return new Compare(Compare.Operator.values()[payload[node]],
+				                   (Expression) toNode(require(child)),
+				                   (Expression) toNode(require(nextSibling[child])));
+			case SEEING:
+				return new Seeing(name(node));
+			case HOLDING:
+				return new Holding(name(node));
+			case NOT:
+				return new Not((Condition) toNode(require(child)));
+			case LITERAL:
+				return new Literal(payload[node]);
+			case VAR:
+				return new Var(name(node));
+			default:
+				return new Sensor(Sensor.Reading.values()[payload[node]]);
+		}
+	}
+
+	private static int require(int node) {
+		if (node == NONE) {
+			throw new IllegalArgumentException("Missing child");
+		}
+		return node;
+	}
+
+	/**
+	 * Returns a <code>Tree&lt;Token&gt;</code> equivalent to the subtree
+	 * with the given root, as <code>Node.toTree()</code> would.
+	 * @param node The index of the root of the subtree.
+	 * @return The tree.
+	 */
+	public Tree<Token> toTree(int node) {
+		Tree.Builder<Token> tree;
+		int child = firstChild[node];
+		switch (kind(node)) {
+			case PROGRAM:
+				tree = Node.builder(TokenType.KEYWORD, "program");
+				break;
+			case DEF: {
+				tree = Node.builder(TokenType.KEYWORD, "def");
+				Tree.Builder<Token> header = Node.builder(TokenType.NAME, "header");
+				header.add(Node.leaf(TokenType.NAME, name(node)));
+				for (; nextSibling[child] != NONE; child = nextSibling[child]) {
+					header.add(toTree(child));
+				}
+				tree.add(header.build());
+				break;
+			}
+			case BLOCK:
+				tree = Node.builder(TokenType.NAME, "block");
+				break;
+			case SET:
+				tree = Node.builder(TokenType.KEYWORD, "set");
+				tree.add(Node.leaf(TokenType.NAME, name(node)));
+				break;
+			case CALL:
+				tree = Node.builder(TokenType.KEYWORD, "call");
+				tree.add(Node.leaf(TokenType.NAME, name(node)));
+				break;
+			case MOVE:
+				tree = Node.builder(TokenType.KEYWORD, Move.Direction.values()[payload[node]].keyword);
+				break;
+			case TURN:
+				tree = Node.builder(TokenType.KEYWORD, "turn");
+				tree.add(Node.leaf(TokenType.KEYWORD, Turn.Direction.values()[payload[node]].keyword));
+				break;
+			case TAKE:
+			case DROP:
+			case SEEING:
+			case HOLDING:
+				tree = Node.builder(TokenType.KEYWORD, kind(node).name().toLowerCase(Locale.ENGLISH));
+				tree.add(Node.leaf(TokenType.NAME, name(node)));
+				break;
+			case BIN_OP:
+			case UNARY:
+				tree = Node.builder(TokenType.OPERATOR, BinOp.Operator.values()[payload[node]].symbol);
+				break;
+			case COMPARE:
+				tree = Node.builder(TokenType.OPERATOR, Compare.Operator.values()[payload[node]].symbol);
+				break;
+			case LITERAL:
+				tree = Node.builder(TokenType.INT, Integer.toString(payload[node]));
+				break;
+			case VAR:
+				tree = Node.builder(TokenType.NAME, name(node));
+				break;
+			case SENSOR:
+				tree = Node.builder(TokenType.KEYWORD, Sensor.Reading.values()[payload[node]].keyword);
+				break;
+			default:
+				tree = Node.builder(TokenType.KEYWORD, kind(node).name().toLowerCase(Locale.ENGLISH));
+				break;
+		}
+		for (; child != NONE; child = nextSibling[child]) {
+			tree.add(toTree(child));
+		}
+		return tree.build();
+	}
+}
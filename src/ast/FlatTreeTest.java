@@ -0,0 +1,70 @@
+package ast;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import parser.Parser;
+
+public class FlatTreeTest {
+	private static final String PROGRAM =
+		"program { set x 1 + 2 * 3; repeat -x { forward (x+1)*2; turn left; } "
+		+ "if x < 3 { take Coin; } else { drop Coin; } while not seeing Block { call f x y+1; } "
+		+ "if holding Coin { back row; } stop; } def f a b { back a % b; } def g { turn around; }";
+
+	@Test
+	public void testSameTreeAsNodes() {
+		Program program = new Parser(PROGRAM).parseProgram();
+		FlatTree flat = new FlatTree(program);
+		assertEquals(program.toTree(), flat.toTree(0));
+		assertEquals(NodeKind.PROGRAM, flat.kind(0));
+		assertEquals(NodeKind.BLOCK, flat.kind(flat.firstChild(0)));
+	}
+
+	@Test
+	public void testDefParameters() {
+		FlatTree flat = new FlatTree(new Parser("program { } def f a b { stop; }").parseProgram());
+		int def = flat.nextSibling(flat.firstChild(0));
+		assertEquals(NodeKind.DEF, flat.kind(def));
+		assertEquals("f", flat.name(def));
+		int a = flat.firstChild(def);
+		assertEquals("a", flat.name(a));
+		assertEquals("b", flat.name(flat.nextSibling(a)));
+		assertEquals(NodeKind.BLOCK, flat.kind(flat.nextSibling(flat.nextSibling(a))));
+	}
+
+	@Test
+	public void testWalkIsPreorderAndSequential() {
+		final FlatTree flat = new FlatTree(new Parser(PROGRAM).parseProgram());
+		final int[] next = { 0 };
+		final int[] depth = { 0 };
+		flat.walk(new FlatTreeVisitor() {
+			public boolean enter(FlatTree tree, int node) {
+				assertEquals(next[0]++, node);
+				depth[0]++;
+				return true;
+			}
+			public void leave(FlatTree tree, int node) {
+				depth[0]--;
+			}
+		});
+		assertEquals(flat.size(), next[0]);
+		assertEquals(0, depth[0]);
+	}
+
+	@Test
+	public void testWalkSkipsChildren() {
+		FlatTree flat = new FlatTree(new Parser("program { set x 1 + 2; stop; }").parseProgram());
+		final StringBuilder visited = new StringBuilder();
+		flat.walk(new FlatTreeVisitor() {
+			public boolean enter(FlatTree tree, int node) {
+				visited.append(tree.kind(node)).append(' ');
+				return tree.kind(node) != NodeKind.SET;
+			}
+			public void leave(FlatTree tree, int node) {
+				visited.append('/');
+			}
+		});
+		assertEquals("PROGRAM BLOCK SET /STOP ///", visited.toString());
+	}
+}
@@ -0,0 +1,25 @@
+package ast;
+
+/**
+ * Visits the nodes of a <code>FlatTree</code> as it is walked depth first.
+ * Nodes are identified by their index in the tree, and are read through
+ * the tree's accessors.
+ */
+public interface FlatTreeVisitor {
+	/**
+	 * Called when the walk reaches a node, before any of its children.
+	 * @param tree The tree being walked.
+	 * @param node The index of the node.
+	 * @return <code>true</code> to visit the node's children,
+	 *         <code>false</code> to skip them.
+	 */
+	boolean enter(FlatTree tree, int node);
+
+	/**
+	 * Called when the walk leaves a node, after its children (if they
+	 * were visited).
+	 * @param tree The tree being walked.
+	 * @param node The index of the node.
+	 */
+	void leave(FlatTree tree, int node);
+}
@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * Whether the robot holds a thing.
+ * <pre>"holding" &lt;thing&gt;</pre>
+ */
+public final class Holding extends Condition {
+	/** The name of the thing. */
+	public final String thing;
+
+	/**
+	 * Constructs a "holding".
+	 * @param thing The name of the thing.
+	 */
+	public Holding(String thing) {
+		super(NodeKind.HOLDING);
+		this.thing = thing;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return builder(TokenType.KEYWORD, "holding").add(leaf(TokenType.NAME, thing)).build();
+	}
+}
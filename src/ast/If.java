@@ -0,0 +1,40 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A conditional.
+ * <pre>"if" &lt;condition&gt; &lt;block&gt; [ "else" &lt;block&gt; ]</pre>
+ */
+public final class If extends Statement {
+	/** The condition. */
+	public final Condition condition;
+	/** The block run if the condition holds. */
+	public final Block thenBlock;
+	/** The block run if it does not, or <code>null</code> if there is no "else". */
+	public final Block elseBlock;
+
+	/**
+	 * Constructs a conditional.
+	 * @param condition The condition.
+	 * @param thenBlock The block run if the condition holds.
+	 * @param elseBlock The block run if it does not, or <code>null</code>.
+	 */
+	public If(Condition condition, Block thenBlock, Block elseBlock) {
+		super(NodeKind.IF);
+		this.condition = condition;
+		this.thenBlock = thenBlock;
+		this.elseBlock = elseBlock;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		Tree.Builder<Token> tree = children(builder(TokenType.KEYWORD, "if"), condition, thenBlock);
+		if (elseBlock != null) {
+			tree.add(elseBlock.toTree());
+		}
+		return tree.build();
+	}
+}
@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * An integer constant.
+ * <pre>&lt;number&gt;</pre>
+ */
+public final class Literal extends Expression {
+	/** The value. */
+	public final int value;
+
+	/**
+	 * Constructs a constant.
+	 * @param value The value.
+	 */
+	public Literal(int value) {
+		super(NodeKind.LITERAL);
+		this.value = value;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return leaf(TokenType.INT, Integer.toString(value));
+	}
+}
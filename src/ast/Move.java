@@ -0,0 +1,44 @@
+package ast;
+
+import java.util.Locale;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A move of the robot.
+ * <pre>&lt;move&gt; &lt;expression&gt; ";"</pre>
+ */
+public final class Move extends Statement {
+	/**
+	 * The way the robot moves.
+	 */
+	public enum Direction {
+		FORWARD, BACK;
+
+		/** The keyword for this direction. */
+		public final String keyword = name().toLowerCase(Locale.ENGLISH);
+	}
+
+	/** The way the robot moves. */
+	public final Direction direction;
+	/** How far it moves. */
+	public final Expression distance;
+
+	/**
+	 * Constructs a move.
+	 * @param direction The way the robot moves.
+	 * @param distance How far it moves.
+	 */
+	public Move(Direction direction, Expression distance) {
+		super(NodeKind.MOVE);
+		this.direction = direction;
+		this.distance = distance;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.KEYWORD, direction.keyword, distance);
+	}
+}
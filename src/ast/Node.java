@@ -0,0 +1,74 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A node of the abstract syntax tree of a robot program. Nodes are
+ * immutable; each has a <code>kind</code> that tells which subclass it is.
+ * <p>
+ * For code written against the parser's original output, any node can be
+ * turned into the equivalent <code>Tree&lt;Token&gt;</code>, with the same
+ * shape and tokens as that output.
+ */
+public abstract class Node {
+	/** Which kind of node this is. */
+	public final NodeKind kind;
+
+	/**
+	 * Constructs a node of the given kind.
+	 * @param kind The kind of the new node.
+	 */
+	protected Node(NodeKind kind) {
+		this.kind = kind;
+	}
+
+	/**
+	 * Returns a new <code>Tree&lt;Token&gt;</code> equivalent to this node.
+	 * @return The tree, as the parser used to build it.
+	 */
+	public abstract Tree<Token> toTree();
+
+	/**
+	 * Returns a one-node tree holding a token of the given type and text.
+	 */
+	static Tree<Token> leaf(TokenType type, String text) {
+		return new Tree<Token>(new Token(type, text));
+	}
+
+	/**
+	 * Returns a builder for a tree whose top node holds a token of the
+	 * given type and text.
+	 */
+	static Tree.Builder<Token> builder(TokenType type, String text) {
+		return new Tree.Builder<Token>(new Token(type, text));
+	}
+
+	/**
+	 * Returns a tree holding a token of the given type and text, whose
+	 * children are the trees of the given nodes.
+	 */
+	static Tree<Token> tree(TokenType type, String text, Node... children) {
+		return children(builder(type, text), children).build();
+	}
+
+	/**
+	 * Adds the trees of the given nodes to a builder, and returns it.
+	 */
+	static Tree.Builder<Token> children(Tree.Builder<Token> tree, Node... children) {
+		for (Node child : children) {
+			tree.add(child.toTree());
+		}
+		return tree;
+	}
+
+	/**
+	 * Returns the tree form of this node as a string.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return toTree().toString();
+	}
+}
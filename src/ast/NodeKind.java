@@ -0,0 +1,31 @@
+package ast;
+
+/**
+ * The kinds of node in an abstract syntax tree, one for each node class,
+ * so that code walking a tree can switch on a node's kind rather than
+ * test its class or compare strings.
+ */
+public enum NodeKind {
+	PROGRAM,
+	DEF,
+	BLOCK,
+	SET,
+	REPEAT,
+	WHILE,
+	IF,
+	CALL,
+	MOVE,
+	TURN,
+	TAKE,
+	DROP,
+	STOP,
+	BIN_OP,
+	UNARY,
+	COMPARE,
+	SEEING,
+	HOLDING,
+	NOT,
+	LITERAL,
+	VAR,
+	SENSOR;
+}
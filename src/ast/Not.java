@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * The negation of a condition.
+ * <pre>"not" &lt;condition&gt;</pre>
+ */
+public final class Not extends Condition {
+	/** The condition negated. */
+	public final Condition condition;
+
+	/**
+	 * Constructs a negation.
+	 * @param condition The condition negated.
+	 */
+	public Not(Condition condition) {
+		super(NodeKind.NOT);
+		this.condition = condition;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.KEYWORD, "not", condition);
+	}
+}
@@ -0,0 +1,40 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A whole program.
+ * <pre>&lt;program&gt; ::= "program" &lt;block&gt; {&lt;procedure&gt;}</pre>
+ */
+public final class Program extends Node {
+	/** The block run when the program starts. */
+	public final Block main;
+	/** The procedures, in the order they were written. */
+	public final List<Def> procedures;
+
+	/**
+	 * Constructs a program.
+	 * @param main The block run when the program starts.
+	 * @param procedures The procedures; the list is copied.
+	 */
+	public Program(Block main, List<Def> procedures) {
+		super(NodeKind.PROGRAM);
+		this.main = main;
+		this.procedures = Collections.unmodifiableList(new ArrayList<Def>(procedures));
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		Tree.Builder<Token> tree = builder(TokenType.KEYWORD, "program").add(main.toTree());
+		for (Def procedure : procedures) {
+			tree.add(procedure.toTree());
+		}
+		return tree.build();
+	}
+}
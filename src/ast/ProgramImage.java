@@ -0,0 +1,145 @@
+package ast;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Saves parsed programs in a binary file beside their source, so that a
+ * program loaded again need not be tokenized and parsed again. The file
+ * holds a header (a magic number, the format version and the SHA-256 hash
+ * of the source text) followed by the program as a <code>FlatTree</code>:
+ * the table of names and then the arrays of nodes. Images are read with a
+ * single channel read, or, if very large, through a memory mapping.
+ * <p>
+ * An image is only used if its hash matches the source text it is asked
+ * for; an image that is missing, stale, of another version or damaged is
+ * simply ignored, and the caller parses the source as usual.
+ */
+public final class ProgramImage {
+	/** The version of the format written; images of other versions are ignored. */
+	public static final int VERSION = 1;
+	/** What is added to the name of the source file to name its image. */
+	public static final String SUFFIX = ".bin";
+
+	private static final int MAGIC = 0x524f4254;  // "ROBT"
+	private static final int HASH_LENGTH = 32;
+	/**
+	 * Images larger than this are mapped rather than copied into the heap.
+	 * A mapping is only released when it is garbage collected, and until
+	 * then some platforms will not let the file be replaced; so smaller
+	 * images, which are most, are simply read.
+	 */
+	private static final long MAP_THRESHOLD = 16 << 20;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private ProgramImage() { }
+
+	/**
+	 * Returns the file in which the image of the given source file is kept.
+	 * @param source The source file, such as <code>maze.robot</code>.
+	 * @return The image file, such as <code>maze.robot.bin</code>.
+	 */
+	public static File imageFile(File source) {
+		return new File(source.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Returns the SHA-256 hash of the given text, encoded as UTF-8.
+	 * @param text The text.
+	 * @return The hash, 32 bytes long.
+	 */
+	public static byte[] hash(String text) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(text.getBytes(UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);  // every Java platform has SHA-256
+		}
+	}
+
+	/**
+	 * Writes the image of a program, replacing any image already there.
+	 * @param image The file to write.
+	 * @param text The source text the program was parsed from.
+	 * @param program The program.
+	 * @throws IOException If the file cannot be written; it is then
+	 *         deleted, so that no partial image is left behind.
+	 */
+	public static void write(File image, String text, Program program) throws IOException {
+		FlatTree tree = new FlatTree(program);
+		boolean written = false;
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(image)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(hash(text));
+			tree.write(out);
+			written = true;
+		} finally {
+			out.close();
+			if (!written) {
+				image.delete();
+			}
+		}
+	}
+
+	/**
+	 * Reads the image of a program, if there is a usable one.
+	 * @param image The file to read.
+	 * @param text The source text the program is wanted for.
+	 * @return The program, or <code>null</code> if the file is missing,
+	 *         was written from other text or by another version, or is
+	 *         damaged.
+	 */
+	public static Program read(File image, String text) {
+		if (!image.isFile()) {
+			return null;
+		}
+		try {
+			RandomAccessFile file = new RandomAccessFile(image, "r");
+			try {
+				FileChannel channel = file.getChannel();
+				long size = channel.size();
+				ByteBuffer in;
+				if (size > MAP_THRESHOLD) {
+					in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				} else {
+					in = ByteBuffer.allocate((int) size);
+					while (in.hasRemaining() && channel.read(in) >= 0) {
+						// keep reading until full or at the end of the file
+					}
+					in.flip();
+				}
+				if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+					return null;
+				}
+				byte[] hash = new byte[HASH_LENGTH];
+				in.get(hash);
+				if (!Arrays.equals(hash, hash(text))) {
+					return null;
+				}
+				FlatTree tree = FlatTree.read(in);
+				if (in.hasRemaining() || tree.kind(0) != NodeKind.PROGRAM) {
+					return null;
+				}
+				return (Program) tree.toNode(0);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			return null;  // damaged: short, inconsistent or of the wrong shape
+		}
+	}
+}
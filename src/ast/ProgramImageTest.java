@@ -0,0 +1,80 @@
+package ast;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.Parser;
+
+public class ProgramImageTest {
+	private static final String PROGRAM =
+		"program { set x 1 + 2 * 3; repeat -x { forward (x+1)*2; turn left; } "
+		+ "if x < 3 { take Coin; } else { drop Coin; } while not seeing Block { call f x y+1; } "
+		+ "if holding Coin { back row; } stop; } def f a b { back a % b; } def g { turn around; }";
+
+	private File image;
+
+	@Before
+	public void setUp() throws IOException {
+		image = File.createTempFile("program", ProgramImage.SUFFIX);
+		image.deleteOnExit();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Program program = new Parser(PROGRAM).parseProgram();
+		ProgramImage.write(image, PROGRAM, program);
+		Program read = ProgramImage.read(image, PROGRAM);
+		assertNotNull(read);
+		assertEquals(program.toTree(), read.toTree());
+		assertEquals(2, read.procedures.get(0).parameters.size());
+	}
+
+	@Test
+	public void testStaleImageIgnored() throws IOException {
+		ProgramImage.write(image, PROGRAM, new Parser(PROGRAM).parseProgram());
+		assertNull(ProgramImage.read(image, PROGRAM + " "));
+	}
+
+	@Test
+	public void testStaleImageCanBeReplaced() throws IOException {
+		String other = "program { stop; }";
+		ProgramImage.write(image, PROGRAM, new Parser(PROGRAM).parseProgram());
+		assertNull(ProgramImage.read(image, other));
+		ProgramImage.write(image, other, new Parser(other).parseProgram());
+		assertEquals("KEYWORD:program(NAME:block(KEYWORD:stop))",
+		             ProgramImage.read(image, other).toTree().toString());
+	}
+
+	@Test
+	public void testDamagedImageIgnored() throws IOException {
+		ProgramImage.write(image, PROGRAM, new Parser(PROGRAM).parseProgram());
+		RandomAccessFile file = new RandomAccessFile(image, "rw");
+		file.setLength(file.length() - 3);
+		file.close();
+		assertNull(ProgramImage.read(image, PROGRAM));
+
+		FileOutputStream out = new FileOutputStream(image);
+		out.write(new byte[] { 1, 2, 3 });
+		out.close();
+		assertNull(ProgramImage.read(image, PROGRAM));
+	}
+
+	@Test
+	public void testMissingImageIgnored() {
+		image.delete();
+		assertNull(ProgramImage.read(image, PROGRAM));
+	}
+
+	@Test
+	public void testImageFileIsBesideSource() {
+		File source = new File("robots", "maze.robot");
+		assertEquals(new File("robots", "maze.robot.bin"), ProgramImage.imageFile(source));
+	}
+}
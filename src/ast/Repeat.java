@@ -0,0 +1,32 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A counted loop.
+ * <pre>"repeat" &lt;expression&gt; &lt;block&gt;</pre>
+ */
+public final class Repeat extends Statement {
+	/** How many times to run the body. */
+	public final Expression count;
+	/** The body. */
+	public final Block body;
+
+	/**
+	 * Constructs a counted loop.
+	 * @param count How many times to run the body.
+	 * @param body The body.
+	 */
+	public Repeat(Expression count, Block body) {
+		super(NodeKind.REPEAT);
+		this.count = count;
+		this.body = body;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.KEYWORD, "repeat", count, body);
+	}
+}
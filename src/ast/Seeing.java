@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * Whether the robot sees a thing ahead of it.
+ * <pre>"seeing" &lt;thing&gt;</pre>
+ */
+public final class Seeing extends Condition {
+	/** The name of the thing. */
+	public final String thing;
+
+	/**
+	 * Constructs a "seeing".
+	 * @param thing The name of the thing.
+	 */
+	public Seeing(String thing) {
+		super(NodeKind.SEEING);
+		this.thing = thing;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return builder(TokenType.KEYWORD, "seeing").add(leaf(TokenType.NAME, thing)).build();
+	}
+}
@@ -0,0 +1,40 @@
+package ast;
+
+import java.util.Locale;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * Something the robot measures about itself.
+ * <pre>"row" | "column" | "distance"</pre>
+ */
+public final class Sensor extends Expression {
+	/**
+	 * The things the robot can measure.
+	 */
+	public enum Reading {
+		ROW, COLUMN, DISTANCE;
+
+		/** The keyword for this reading. */
+		public final String keyword = name().toLowerCase(Locale.ENGLISH);
+	}
+
+	/** What is measured. */
+	public final Reading reading;
+
+	/**
+	 * Constructs a sensor reading.
+	 * @param reading What is measured.
+	 */
+	public Sensor(Reading reading) {
+		super(NodeKind.SENSOR);
+		this.reading = reading;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return leaf(TokenType.KEYWORD, reading.keyword);
+	}
+}
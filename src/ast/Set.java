@@ -0,0 +1,32 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * An assignment.
+ * <pre>"set" &lt;variable&gt; &lt;expression&gt; ";"</pre>
+ */
+public final class Set extends Statement {
+	/** The variable assigned to. */
+	public final String variable;
+	/** The value assigned. */
+	public final Expression value;
+
+	/**
+	 * Constructs an assignment.
+	 * @param variable The variable assigned to.
+	 * @param value The value assigned.
+	 */
+	public Set(String variable, Expression value) {
+		super(NodeKind.SET);
+		this.variable = variable;
+		this.value = value;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return builder(TokenType.KEYWORD, "set").add(leaf(TokenType.NAME, variable)).add(value.toTree()).build();
+	}
+}
@@ -0,0 +1,10 @@
+package ast;
+
+/**
+ * A &lt;command&gt;: a &lt;thought&gt; or an &lt;action&gt;.
+ */
+public abstract class Statement extends Node {
+	Statement(NodeKind kind) {
+		super(kind);
+	}
+}
@@ -0,0 +1,23 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * The end of the program.
+ * <pre>"stop" ";"</pre>
+ */
+public final class Stop extends Statement {
+	/**
+	 * Constructs a "stop".
+	 */
+	public Stop() {
+		super(NodeKind.STOP);
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return leaf(TokenType.KEYWORD, "stop");
+	}
+}
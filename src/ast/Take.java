@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * The robot picks up a thing.
+ * <pre>"take" &lt;thing&gt; ";"</pre>
+ */
+public final class Take extends Statement {
+	/** The name of the thing. */
+	public final String thing;
+
+	/**
+	 * Constructs a "take".
+	 * @param thing The name of the thing.
+	 */
+	public Take(String thing) {
+		super(NodeKind.TAKE);
+		this.thing = thing;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return builder(TokenType.KEYWORD, "take").add(leaf(TokenType.NAME, thing)).build();
+	}
+}
@@ -0,0 +1,40 @@
+package ast;
+
+import java.util.Locale;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A turn of the robot.
+ * <pre>"turn" &lt;direction&gt; ";"</pre>
+ */
+public final class Turn extends Statement {
+	/**
+	 * The way the robot turns.
+	 */
+	public enum Direction {
+		RIGHT, LEFT, AROUND;
+
+		/** The keyword for this direction. */
+		public final String keyword = name().toLowerCase(Locale.ENGLISH);
+	}
+
+	/** The way the robot turns. */
+	public final Direction direction;
+
+	/**
+	 * Constructs a turn.
+	 * @param direction The way the robot turns.
+	 */
+	public Turn(Direction direction) {
+		super(NodeKind.TURN);
+		this.direction = direction;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return builder(TokenType.KEYWORD, "turn").add(leaf(TokenType.KEYWORD, direction.keyword)).build();
+	}
+}
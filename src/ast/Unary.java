@@ -0,0 +1,35 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A signed term at the start of an expression.
+ * <pre>&lt;add_operator&gt; &lt;term&gt;</pre>
+ */
+public final class Unary extends Expression {
+	/** The sign: <code>ADD</code> or <code>SUBTRACT</code>. */
+	public final BinOp.Operator operator;
+	/** The term signed. */
+	public final Expression operand;
+
+	/**
+	 * Constructs a signed term.
+	 * @param operator <code>ADD</code> or <code>SUBTRACT</code>.
+	 * @param operand The term signed.
+	 */
+	public Unary(BinOp.Operator operator, Expression operand) {
+		super(NodeKind.UNARY);
+		if (operator != BinOp.Operator.ADD && operator != BinOp.Operator.SUBTRACT) {
+			throw new IllegalArgumentException("Not a sign: " + operator.symbol);
+		}
+		this.operator = operator;
+		this.operand = operand;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.OPERATOR, operator.symbol, operand);
+	}
+}
@@ -0,0 +1,28 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A variable used as a value.
+ * <pre>&lt;variable&gt;</pre>
+ */
+public final class Var extends Expression {
+	/** The name of the variable. */
+	public final String name;
+
+	/**
+	 * Constructs a variable reference.
+	 * @param name The name of the variable.
+	 */
+	public Var(String name) {
+		super(NodeKind.VAR);
+		this.name = name;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return leaf(TokenType.NAME, name);
+	}
+}
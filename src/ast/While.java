@@ -0,0 +1,32 @@
+package ast;
+
+import tokenizer.Token;
+import tokenizer.TokenType;
+import tree.Tree;
+
+/**
+ * A conditional loop.
+ * <pre>"while" &lt;condition&gt; &lt;block&gt;</pre>
+ */
+public final class While extends Statement {
+	/** The condition tested before each run of the body. */
+	public final Condition condition;
+	/** The body. */
+	public final Block body;
+
+	/**
+	 * Constructs a conditional loop.
+	 * @param condition The condition tested before each run of the body.
+	 * @param body The body.
+	 */
+	public While(Condition condition, Block body) {
+		super(NodeKind.WHILE);
+		this.condition = condition;
+		this.body = body;
+	}
+
+	@Override
+	public Tree<Token> toTree() {
+		return tree(TokenType.KEYWORD, "while", condition, body);
+	}
+}
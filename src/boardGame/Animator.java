@@ -0,0 +1,144 @@
+package boardGame;
+
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.LinkedList;
+
+import javax.swing.Timer;
+
+/**
+ * Animates the moves of pieces on a board. A move changes the board at
+ * once, on whatever thread makes it; the move is then queued here and
+ * shown by a Swing <code>Timer</code> on the event dispatch thread, which
+ * slides the piece from its old location to its new one a frame at a time.
+ * <p>
+ * Moves are shown in the order they were made. When moves are made faster
+ * than they can be shown, each frame advances the current move by as many
+ * steps as there are moves waiting, so the display skips frames and
+ * catches up rather than falling further behind.
+ */
+final class Animator implements ActionListener {
+    /** Milliseconds between frames. */
+    static final int PAUSE_MS = 15;
+    /** Frames per second. */
+    static final int FRAME_RATE = 1000 / PAUSE_MS;
+
+    private final Board board;
+    private final Timer timer;
+    private final LinkedList<Move> queue = new LinkedList<Move>();
+
+    /**
+     * One committed move, waiting to be (or being) shown.
+     */
+    private static class Move {
+        final Piece piece;
+        final int fromRow, fromColumn, toRow, toColumn;
+        final int steps;
+        int step;
+
+        Move(Piece piece, int fromRow, int fromColumn,
+             int toRow, int toColumn, int steps) {
+            this.piece = piece;
+            this.fromRow = fromRow;
+            this.fromColumn = fromColumn;
+            this.toRow = toRow;
+            this.toColumn = toColumn;
+            this.steps = steps;
+        }
+    }
+
+    /**
+     * Creates an animator for the given board.
+     *
+     * @param board The board whose pieces will be animated.
+     */
+    Animator(Board board) {
+        this.board = board;
+        timer = new Timer(PAUSE_MS, this);
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Queues the display of a move that has already been made on the
+     * board. May be called from any thread.
+     *
+     * @param piece The piece that moved.
+     * @param fromRow The row it moved from.
+     * @param fromColumn The column it moved from.
+     * @param toRow The row it moved to.
+     * @param toColumn The column it moved to.
+     * @param steps The number of frames the move should take.
+     */
+    void animate(Piece piece, int fromRow, int fromColumn,
+                 int toRow, int toColumn, int steps) {
+        synchronized (queue) {
+            if (piece.pendingMoves++ == 0) {
+                piece.startAnimation(board.columnToX(fromColumn), board.rowToY(fromRow));
+            }
+            queue.addLast(new Move(piece, fromRow, fromColumn, toRow, toColumn,
+                                   Math.max(1, steps)));
+        }
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Returns the number of moves that have not yet been fully shown.
+     *
+     * @return The number of moves waiting.
+     */
+    int getBacklog() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Shows the next frame. Called by the timer on the event dispatch
+     * thread.
+     *
+     * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+     */
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        Move move;
+        int advance;
+        synchronized (queue) {
+            move = queue.peekFirst();
+            if (move == null) {
+                timer.stop();
+                return;
+            }
+            advance = queue.size();
+        }
+        Piece piece = move.piece;
+        Rectangle oldRect = piece.isOnBoard(board) ? piece.getRectangle() : null;
+        move.step = Math.min(move.steps, move.step + advance);
+        boolean finished = move.step == move.steps || !piece.isOnBoard(board);
+        if (!finished) {
+            int startX = board.columnToX(move.fromColumn);
+            int startY = board.rowToY(move.fromRow);
+            int changeInX = board.columnToX(move.toColumn) - startX;
+            int changeInY = board.rowToY(move.toRow) - startY;
+            piece.startAnimation(startX + (move.step * changeInX) / move.steps,
+                                 startY + (move.step * changeInY) / move.steps);
+        } else {
+            synchronized (queue) {
+                queue.removeFirst();
+                if (--piece.pendingMoves == 0) {
+                    piece.endAnimation();
+                }
+            }
+        }
+        if (oldRect != null && piece.isOnBoard(board)) {
+            Rectangle newRect = piece.getRectangle();
+            Rectangle dirty = oldRect.union(newRect);
+            dirty.grow(2, 2);
+            board.repaintLater(dirty);
+        } else {
+            board.update(piece, null);
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package boardGame;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
 import java.awt.Rectangle;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Set;
 import java.util.Stack;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * A generic board that, together with <code>Piece</code>, can be used to display board
@@ -25,17 +36,55 @@ import javax.swing.JPanel;
  * @version March 9, 2012
  */
 public class Board extends Observable implements Observer {
-    private Vector<Piece>[][] board;
-    private Vector<Piece> allPieces = new Vector<Piece>();
+    /** Boards with more locations than this are sparse by default. */
+    public static final long SPARSE_THRESHOLD = 1L << 24;
+    private static final int STRIPES = 64;  // must be a power of two
+    private static final Color BACKGROUND_COLOR = Color.white;
+    private static final Color LINE_COLOR = new Color(192, 192, 255);
+    /** Pieces are drawn in full only when cells are at least this many pixels. */
+    public static final int DETAIL_PIXELS = 8;
+    private static final int GRID_PIXELS = 3;   // no grid lines below this
+    private static final int TILE_PIXELS = 4;   // side of a density tile
+    private static final Color[] HEAT = new Color[16];  // sparse to crowded
+    static {
+        for (int i = 0; i < HEAT.length; i++) {
+            int step = 255 * i / (HEAT.length - 1);
+            HEAT[i] = new Color(255 - step / 3, 224 - 7 * step / 8, 160 - 5 * step / 8);
+        }
+    }
+    private static final Comparator<Piece> PAINT_ORDER = new Comparator<Piece>() {
+        public int compare(Piece a, Piece b) {
+            return a.zRank < b.zRank ? -1 : a.zRank == b.zRank ? 0 : 1;
+        }
+    };
+    
+    private CellStore cells;
+    private ZOrder allPieces = new ZOrder();
+    private Set<Piece> movingPieces =
+        Collections.newSetFromMap(new ConcurrentHashMap<Piece, Boolean>());
+    private Occupancy occupancy;
+    private ConcurrentHashMap<String, Occupancy> occupancyByName =
+        new ConcurrentHashMap<String, Occupancy>();
+    private ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private boolean sparse;
     private int selectedRow = -1;
     private int selectedColumn = -1;
     private Piece selectedPiece = null;
     private int rows;
     private int columns;
     private int defaultSpeed = 10;
+    private volatile boolean animated = true;
+    private Animator animator;
+    private RepaintCoalescer repaints;
+    private SpriteCache sprites;
+    private DensityMap density;
+    private volatile int viewRow, viewColumn;    // the first location shown
+    private volatile int viewRows, viewColumns;  // how many locations are shown
+    private boolean viewHasChanged = false;
     private Board thisBoard;
     private JPanel display;
     protected boolean panelHasBeenResized = false;
+    private BufferedImage background;  // the empty grid, drawn by createBackground
     
     /**
      * To be notified when a user has used the mouse to drag a piece on this
@@ -50,6 +99,8 @@ public class Board extends Observable implements Observer {
     /**
      * Creates a playing board with the given number of rows and columns. This
      * board contains a Swing <code>JPanel</code> that may be used in a GUI.
+     * Boards with more than <code>SPARSE_THRESHOLD</code> locations are
+     * created sparse.
      * 
      * @param rows
      *        Desired number of rows.
@@ -57,15 +108,48 @@ public class Board extends Observable implements Observer {
      *        Desired number of columns.
      */
     public Board(int rows, int columns) {
+        this(rows, columns, (long) rows * columns > SPARSE_THRESHOLD);
+    }
+
+    /**
+     * Creates a playing board with the given number of rows and columns,
+     * choosing how its locations are stored. A dense board uses a few bytes
+     * for every location. A sparse board stores only the 64 x 64 regions
+     * that currently hold pieces, so it suits huge, mostly empty worlds;
+     * its locations are a little slower to reach. Both behave the same
+     * in every other respect.
+     * 
+     * @param rows
+     *        Desired number of rows.
+     * @param columns
+     *        Desired number of columns.
+     * @param sparse
+     *        <code>true</code> to store only the occupied regions.
+     */
+    public Board(int rows, int columns, boolean sparse) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Illegal board size: "
+                                               + rows + " x " + columns);
+        }
         display = new DisplayPanel();
         this.rows = rows;
         this.columns = columns;
+        this.sparse = sparse;
         thisBoard = this;
-        board = new Vector[rows][columns];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                board[i][j] = new Vector<Piece>(1);
-            }
+        animator = new Animator(this);
+        repaints = new RepaintCoalescer(display);
+        sprites = new SpriteCache(display);
+        density = new DensityMap(rows, columns);
+        viewRows = rows;
+        viewColumns = columns;
+        if (sparse) {
+            cells = new ChunkedCellStore(rows, columns);
+        } else {
+            cells = new DenseCellStore(rows, columns);
+        }
+        occupancy = newOccupancy();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
         }
         display.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
@@ -82,9 +166,139 @@ public class Board extends Observable implements Observer {
             }
         });
         addDragListener();
+        addViewListener();
         dragEvent = new DragEvent();
     }
 
+    /**
+     * Lets the user zoom this board's display with the mouse wheel, and
+     * move around a zoomed-in display by dragging with the right button.
+     */
+    private void addViewListener() {
+        MouseAdapter listener = new MouseAdapter() {
+            private int startX, startY, startRow, startColumn;
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(Math.pow(1.25, -e.getWheelRotation()), e.getX(), e.getY());
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                startX = e.getX();
+                startY = e.getY();
+                startRow = viewRow;
+                startColumn = viewColumn;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isRightMouseButton(e)) return;
+                int width = Math.max(1, display.getWidth());
+                int height = Math.max(1, display.getHeight());
+                int rowsMoved = (int) ((long) (e.getY() - startY) * viewRows / height);
+                int columnsMoved = (int) ((long) (e.getX() - startX) * viewColumns / width);
+                setView(startRow - rowsMoved, startColumn - columnsMoved,
+                        viewRows, viewColumns);
+            }
+        };
+        display.addMouseWheelListener(listener);
+        display.addMouseListener(listener);
+        display.addMouseMotionListener(listener);
+    }
+
+    /**
+     * Shows only part of this board, enlarged to fill the display. The
+     * part is moved or shrunk as needed to lie within the board.
+     * 
+     * @param firstRow The top row to show.
+     * @param firstColumn The leftmost column to show.
+     * @param rowsShown The number of rows to show.
+     * @param columnsShown The number of columns to show.
+     */
+    public void setView(int firstRow, int firstColumn, int rowsShown, int columnsShown) {
+        rowsShown = Math.max(1, Math.min(rows, rowsShown));
+        columnsShown = Math.max(1, Math.min(columns, columnsShown));
+        firstRow = Math.max(0, Math.min(rows - rowsShown, firstRow));
+        firstColumn = Math.max(0, Math.min(columns - columnsShown, firstColumn));
+        synchronized (this) {
+            if (firstRow == viewRow && firstColumn == viewColumn
+                    && rowsShown == viewRows && columnsShown == viewColumns) {
+                return;
+            }
+            viewRow = firstRow;
+            viewColumn = firstColumn;
+            viewRows = rowsShown;
+            viewColumns = columnsShown;
+            viewHasChanged = true;
+        }
+        display.repaint();
+    }
+
+    /**
+     * Shows the whole board again, after <code>setView</code> or
+     * <code>zoom</code>.
+     */
+    public void showAll() {
+        setView(0, 0, rows, columns);
+    }
+
+    /**
+     * Zooms this board's display in or out, keeping the location under
+     * the given point where it is.
+     * 
+     * @param factor How much to enlarge the display; less than 1 to zoom out.
+     * @param x The x coordinate to keep in place.
+     * @param y The y coordinate to keep in place.
+     */
+    public void zoom(double factor, int x, int y) {
+        int width = Math.max(1, display.getWidth());
+        int height = Math.max(1, display.getHeight());
+        int rowsShown = (int) Math.max(1, Math.min(rows, Math.round(viewRows / factor)));
+        int columnsShown = (int) Math.max(1, Math.min(columns, Math.round(viewColumns / factor)));
+        int row = viewRow + (int) ((long) y * viewRows / height);
+        int column = viewColumn + (int) ((long) x * viewColumns / width);
+        setView(row - (int) ((long) y * rowsShown / height),
+                column - (int) ((long) x * columnsShown / width),
+                rowsShown, columnsShown);
+    }
+
+    /**
+     * Returns the top row shown in this board's display.
+     * 
+     * @return The first row shown.
+     */
+    public int getViewRow() {
+        return viewRow;
+    }
+
+    /**
+     * Returns the leftmost column shown in this board's display.
+     * 
+     * @return The first column shown.
+     */
+    public int getViewColumn() {
+        return viewColumn;
+    }
+
+    /**
+     * Returns the number of rows shown in this board's display.
+     * 
+     * @return The number of rows shown.
+     */
+    public int getViewRows() {
+        return viewRows;
+    }
+
+    /**
+     * Returns the number of columns shown in this board's display.
+     * 
+     * @return The number of columns shown.
+     */
+    public int getViewColumns() {
+        return viewColumns;
+    }
+
     /**
      * Makes it possible for the user to drag pieces on this board.
      */
@@ -103,6 +317,38 @@ public class Board extends Observable implements Observer {
         return display;
     }
 
+    /**
+     * Tests whether this board stores only its occupied regions.
+     * 
+     * @return <code>true</code> if this board is sparse.
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Creates an empty occupancy index suited to this board.
+     */
+    private Occupancy newOccupancy() {
+        if (sparse) {
+            return new SparseOccupancyIndex(rows, columns);
+        }
+        return new OccupancyIndex(rows, columns);
+    }
+
+    /**
+     * Returns the lock that guards the given location. Locations in the
+     * same 64 x 64 region share a lock, because they share words of the
+     * occupancy bitsets; distant regions can be changed in parallel.
+     */
+    private ReentrantLock lockFor(int row, int column) {
+        return stripes[stripe(row, column)];
+    }
+
+    private static int stripe(int row, int column) {
+        return ((row >> 6) * 31 + (column >> 6)) & (STRIPES - 1);
+    }
+
     /**
      * Returns the number of rows in this board.
      * 
@@ -137,10 +383,13 @@ public class Board extends Observable implements Observer {
      *         If the specified location does not exist.
      */
     public Piece getPiece(int row, int column) {
-        if (board[row][column].isEmpty()) {
-            return null;
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            return cells.top(row, column);
+        } finally {
+            lock.unlock();
         }
-        return board[row][column].lastElement();
     }
 
     /**
@@ -158,12 +407,147 @@ public class Board extends Observable implements Observer {
      */
     public Stack<Piece> getPieces(int row, int column) {
         Stack<Piece> pieces = new Stack<Piece>();
-        for (Iterator<Piece> iter = board[row][column].iterator(); iter.hasNext();) {
-            pieces.push(iter.next());
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            int count = cells.size(row, column);
+            pieces.setSize(count);
+            for (int slot = cells.topSlot(row, column); slot != 0; slot = cells.below(slot)) {
+                pieces.set(--count, cells.piece(slot));
+            }
+        } finally {
+            lock.unlock();
         }
         return pieces;
     }
     
+    /**
+     * Returns a read-only view of the pieces in the given position, from
+     * the bottom piece (index 0) to the topmost one. Unlike
+     * <code>getPieces</code>, nothing is copied; the view reflects later
+     * changes to that board location. Each <code>get</code> walks the
+     * location from its top piece, so iterate over the view, which
+     * walks it once, rather than indexing it in a loop.
+     * 
+     * @param row
+     *        A row number on this board.
+     * @param column
+     *        A column number on this board.
+     * @return An unmodifiable list of the pieces in this board location.
+     * @throws ArrayIndexOutOfBoundsException
+     *         If the specified location does not exist.
+     */
+    public List<Piece> piecesAt(int row, int column) {
+        return new CellView(row, column);
+    }
+
+    /**
+     * Returns the number of pieces in the given position.
+     * 
+     * @param row The row to examine.
+     * @param column The column to examine.
+     * @return The number of pieces in this board location.
+     */
+    public int countPieces(int row, int column) {
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            return cells.size(row, column);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls the visitor on each piece in the given position, starting
+     * with the topmost piece, until the visitor returns <code>false</code>
+     * or the pieces run out. The visitor must not change this board.
+     * 
+     * @param row The row to examine.
+     * @param column The column to examine.
+     * @param visitor The visitor to call on each piece.
+     * @return The piece for which the visitor returned <code>false</code>,
+     *         or <code>null</code> if it accepted every piece.
+     */
+    public Piece forEachPiece(int row, int column, PieceVisitor visitor) {
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            for (int slot = cells.topSlot(row, column); slot != 0; slot = cells.below(slot)) {
+                Piece piece = cells.piece(slot);
+                if (!visitor.visit(piece)) {
+                    return piece;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tests whether the given position holds a piece with the given name.
+     * 
+     * @param row The row to examine.
+     * @param column The column to examine.
+     * @param name The name to look for.
+     * @return <code>true</code> if some piece at this location has that name.
+     */
+    public boolean containsNamed(int row, int column, String name) {
+        return topNamed(row, column, name) != null;
+    }
+
+    /**
+     * Returns the topmost piece with the given name in the given position,
+     * or <code>null</code> if there is none.
+     * 
+     * @param row The row to examine.
+     * @param column The column to examine.
+     * @param name The name to look for.
+     * @return The topmost piece with that name.
+     */
+    public Piece topNamed(int row, int column, String name) {
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            for (int slot = cells.topSlot(row, column); slot != 0; slot = cells.below(slot)) {
+                Piece piece = cells.piece(slot);
+                if (name.equals(piece.getName())) {
+                    return piece;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the topmost piece of the given class (or a subclass of it)
+     * in the given position, or <code>null</code> if there is none.
+     * 
+     * @param <T> The type of piece wanted.
+     * @param row The row to examine.
+     * @param column The column to examine.
+     * @param type The class of piece to look for.
+     * @return The topmost piece of that type.
+     */
+    public <T extends Piece> T topOfType(int row, int column, Class<T> type) {
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            for (int slot = cells.topSlot(row, column); slot != 0; slot = cells.below(slot)) {
+                Piece piece = cells.piece(slot);
+                if (type.isInstance(piece)) {
+                    return type.cast(piece);
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Returns <code>true</code> if the given row and column on this board
      * contains no pieces.
@@ -173,7 +557,13 @@ public class Board extends Observable implements Observer {
      * @return <code>true</code> if this location is empty.
      */
     public boolean isEmpty(int row, int column) {
-        return board[row][column].isEmpty();
+        ReentrantLock lock = lockFor(row, column);
+        lock.lock();
+        try {
+            return cells.topSlot(row, column) == 0;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -203,7 +593,8 @@ public class Board extends Observable implements Observer {
      * @return The number of the column containing the given x coordinate.
      */
     public int xToColumn(int x) {
-        return Math.min(columns - 1, (x * columns) / display.getWidth());
+        return Math.min(columns - 1, viewColumn
+                        + (int) (((long) x * viewColumns) / display.getWidth()));
     }
 
     /**
@@ -214,7 +605,8 @@ public class Board extends Observable implements Observer {
      * @return The number of the row containing the given y coordinate.
      */
     public int yToRow(int y) {
-        return Math.min(rows - 1, (y * rows) / display.getHeight());
+        return Math.min(rows - 1, viewRow
+                        + (int) (((long) y * viewRows) / display.getHeight()));
     }
 
     /**
@@ -226,7 +618,8 @@ public class Board extends Observable implements Observer {
      * @return The X coordinate of the left side of that column.
      */
     public int columnToX(int columnNumber) {
-        return (columnNumber * (display.getWidth() - 1)) / columns;
+        return (int) (((long) (columnNumber - viewColumn) * (display.getWidth() - 1))
+                      / viewColumns);
     }
 
     /**
@@ -238,7 +631,8 @@ public class Board extends Observable implements Observer {
      * @return The Y coordinate of the top side of that row.
      *      */
     public int rowToY(int rowNumber) {
-        return (rowNumber * (display.getHeight() - 1)) / rows;
+        return (int) (((long) (rowNumber - viewRow) * (display.getHeight() - 1))
+                      / viewRows);
     }
 
     /**
@@ -257,22 +651,37 @@ public class Board extends Observable implements Observer {
      *         If the specified location does not exist.
      */
     public void place(Piece piece, int row, int column) {
-        if (piece.getBoard() != null) {
-            throw new IllegalArgumentException("Piece " + piece + " is already on a board");
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new ArrayIndexOutOfBoundsException("[" + row + "][" + column + "]");
         }
-        board[row][column].add(piece);
-        synchronized (allPieces) {
-            allPieces.add(piece);
+        ReentrantLock lock = lockFor(row, column);
+        // Claim the piece, so that it cannot be placed twice at once
+        synchronized (piece) {
+            if (piece.board != null) {
+                throw new IllegalArgumentException("Piece " + piece + " is already on a board");
+            }
+            piece.board = this;
         }
+        // Finish with the piece before it can be found in its cell, and
+        // so removed; until then, remove(piece) finds it missing there
+        allPieces.add(piece);
         piece.placeHelper(this, row, column);
+        lock.lock();
+        try {
+            cells.push(row, column, piece);
+            cellGained(piece, row, column);
+            piece.positionHelper(row, column);
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
      * Removes all pieces from this board.
      */
     public void clear() {
-        for (int i = allPieces.size() - 1; i >= 0; i--) {
-            remove (allPieces.get(i));
+        for (Piece piece = allPieces.top(); piece != null; piece = allPieces.top()) {
+            remove (piece);
         }
     }
 
@@ -302,12 +711,32 @@ public class Board extends Observable implements Observer {
      * @param oldColumn Where the piece is being moved from.
      * @param newRow Where the piece is being moved to.
      * @param newColumn Where the piece is being moved to.
+     * @return <code>true</code> if the piece was moved; <code>false</code>
+     *         if it was no longer at the old location.
      */
-    final void changePositionOnBoard(Piece piece,
+    final boolean changePositionOnBoard(Piece piece,
                                      int oldRow, int oldColumn,
                                      int newRow, int newColumn) {
-        board[oldRow][oldColumn].remove(piece);
-        board[newRow][newColumn].add(piece);
+        // Always take two locks in the same order, to avoid deadlock
+        int oldStripe = stripe(oldRow, oldColumn);
+        int newStripe = stripe(newRow, newColumn);
+        ReentrantLock first = stripes[Math.min(oldStripe, newStripe)];
+        ReentrantLock second = stripes[Math.max(oldStripe, newStripe)];
+        first.lock();
+        second.lock();
+        try {
+            if (!cells.remove(oldRow, oldColumn, piece)) {
+                return false;
+            }
+            cellLost(piece, oldRow, oldColumn);
+            cells.push(newRow, newColumn, piece);
+            cellGained(piece, newRow, newColumn);
+            piece.positionHelper(newRow, newColumn);
+            return true;
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
     }
 
     /**
@@ -322,14 +751,161 @@ public class Board extends Observable implements Observer {
         if (piece == null || piece.getBoard() != this) {
             return false;
         }
-        board[piece.getRow()][piece.getColumn()].remove(piece);
-        synchronized (allPieces) {
-            allPieces.remove(piece);
+        // The piece's position only changes under the lock for its
+        // location, so read it again once that lock is held, and try
+        // again if the piece moved in the meantime.
+        while (true) {
+            int row = piece.getRow();
+            int column = piece.getColumn();
+            if (row < 0) {
+                return false;  // not placed yet, or already removed
+            }
+            ReentrantLock lock = lockFor(row, column);
+            lock.lock();
+            try {
+                if (piece.getRow() == row && piece.getColumn() == column) {
+                    if (!cells.remove(row, column, piece)) {
+                        return false;
+                    }
+                    cellLost(piece, row, column);
+                    break;
+                }
+            } finally {
+                lock.unlock();
+            }
         }
+        allPieces.remove(piece);
         piece.removeHelper();
         return true;
     }
 
+    /**
+     * Updates the occupancy indices after the given piece has been
+     * added to the given location. The caller holds the lock for
+     * that location.
+     */
+    private void cellGained(Piece piece, int row, int column) {
+        occupancy.set(row, column);
+        density.add(row, column);
+        Occupancy named = occupancyByName.get(piece.getName());
+        if (named != null) {
+            named.set(row, column);
+        }
+    }
+
+    /**
+     * Updates the occupancy indices after the given piece has been
+     * taken away from the given location. The caller holds the lock
+     * for that location.
+     */
+    private void cellLost(Piece piece, int row, int column) {
+        density.remove(row, column);
+        if (cells.topSlot(row, column) == 0) {
+            occupancy.clear(row, column);
+        }
+        Occupancy named = occupancyByName.get(piece.getName());
+        if (named != null && !containsNamed(row, column, piece.getName())) {
+            named.clear(row, column);
+        }
+    }
+
+    /**
+     * Returns the distance from the given location to the nearest
+     * occupied location in the given direction, not counting the given
+     * location itself. Exactly one of <code>deltaRow</code> and
+     * <code>deltaColumn</code> must be nonzero; only its sign is used.
+     * No cells are visited one at a time, so the cost does not grow
+     * with the distance.
+     * 
+     * @param row The row to look from.
+     * @param column The column to look from.
+     * @param deltaRow -1 to look up, 1 to look down, 0 otherwise.
+     * @param deltaColumn -1 to look left, 1 to look right, 0 otherwise.
+     * @return The number of steps to the nearest occupied location, or
+     *         -1 if there is no piece in that direction.
+     */
+    public int distanceToNearestPiece(int row, int column, int deltaRow, int deltaColumn) {
+        return distance(occupancy, row, column, deltaRow, deltaColumn);
+    }
+
+    /**
+     * Returns the distance from the given location to the nearest
+     * location in the given direction that holds a piece with the
+     * given name. The first query for a name builds an index for that
+     * name, which is then kept up to date as pieces are placed, moved
+     * and removed.
+     * 
+     * @param row The row to look from.
+     * @param column The column to look from.
+     * @param deltaRow -1 to look up, 1 to look down, 0 otherwise.
+     * @param deltaColumn -1 to look left, 1 to look right, 0 otherwise.
+     * @param name The name of the piece to look for.
+     * @return The number of steps to the nearest such piece, or -1
+     *         if there is none in that direction.
+     * @see #distanceToNearestPiece(int, int, int, int)
+     */
+    public int distanceToNearestPiece(int row, int column,
+                                      int deltaRow, int deltaColumn, String name) {
+        Occupancy named = occupancyByName.get(name);
+        if (named == null) {
+            named = buildOccupancy(name);
+        }
+        return distance(named, row, column, deltaRow, deltaColumn);
+    }
+
+    /**
+     * Builds and registers the occupancy index for the given name. Every
+     * location lock is held meanwhile, so no change can be missed.
+     */
+    private Occupancy buildOccupancy(String name) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i].lock();
+        }
+        try {
+            Occupancy named = occupancyByName.get(name);
+            if (named != null) {
+                return named;
+            }
+            named = newOccupancy();
+            for (int i = 0; i < rows; i++) {
+                for (int j = occupancy.nextInRow(i, 0); j >= 0; j = occupancy.nextInRow(i, j + 1)) {
+                    if (containsNamed(i, j, name)) {
+                        named.set(i, j);
+                    }
+                }
+            }
+            occupancyByName.put(name, named);
+            return named;
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private static int distance(Occupancy index, int row, int column,
+                                int deltaRow, int deltaColumn) {
+        int found;
+        if (deltaRow == 0 && deltaColumn > 0) {
+            found = index.nextInRow(row, column + 1);
+            return found < 0 ? -1 : found - column;
+        }
+        if (deltaRow == 0 && deltaColumn < 0) {
+            found = index.previousInRow(row, column - 1);
+            return found < 0 ? -1 : column - found;
+        }
+        if (deltaColumn == 0 && deltaRow > 0) {
+            found = index.nextInColumn(column, row + 1);
+            return found < 0 ? -1 : found - row;
+        }
+        if (deltaColumn == 0 && deltaRow < 0) {
+            found = index.previousInColumn(column, row - 1);
+            return found < 0 ? -1 : row - found;
+        }
+        throw new IllegalArgumentException("Not a direction: ("
+                                           + deltaRow + ", " + deltaColumn + ")");
+    }
+
     /**
      * Ensures that the given piece will be drawn on top of any other pieces
      * in the same board location.
@@ -338,9 +914,23 @@ public class Board extends Observable implements Observer {
      *        The piece to promote to the top.
      */
     protected void moveToTop(Piece piece) {
-        synchronized (allPieces) {
-            allPieces.remove(piece);
-            allPieces.add(piece);
+        if (piece.getBoard() == this) {
+            allPieces.moveToTop(piece);
+        }
+    }
+
+    /**
+     * Records that the given piece has started or stopped being shown
+     * away from its location (while it is animated or dragged).
+     * 
+     * @param piece The piece.
+     * @param moving <code>true</code> if it is now away from its location.
+     */
+    void movingChanged(Piece piece, boolean moving) {
+        if (moving) {
+            movingPieces.add(piece);
+        } else {
+            movingPieces.remove(piece);
         }
     }
 
@@ -367,6 +957,43 @@ public class Board extends Observable implements Observer {
         return defaultSpeed;
     }
 
+    /**
+     * Sets whether moves on this board are animated. When they are, a
+     * moving piece is shown sliding to its new location; the move itself
+     * takes effect at once either way, so the program making the move is
+     * never held up by the animation.
+     * 
+     * @param animated
+     *        <code>false</code> to show pieces jumping to their new locations.
+     */
+    public void setAnimated(boolean animated) {
+        this.animated = animated;
+    }
+
+    /**
+     * Tells whether moves on this board are animated.
+     * 
+     * @return <code>true</code> if moving pieces are shown sliding.
+     */
+    public boolean isAnimated() {
+        return animated;
+    }
+
+    /**
+     * Returns the number of moves that have been made on this board but
+     * not yet completely shown.
+     * 
+     * @return The number of moves still being animated.
+     */
+    public int getAnimationBacklog() {
+        return animator.getBacklog();
+    }
+
+    /** For internal use only! */
+    Animator getAnimator() {
+        return animator;
+    }
+
     /**
      * Returns the current width, in pixels, of a single cell on this board. The
      * value will change if this board is resized.
@@ -374,7 +1001,7 @@ public class Board extends Observable implements Observer {
      * @return The current width of a cell on this board.
      */
     protected int getCellWidth() {
-        return display.getWidth() / columns;
+        return display.getWidth() / viewColumns;
     }
 
     /**
@@ -384,7 +1011,7 @@ public class Board extends Observable implements Observer {
      * @return The current height of a cell on this board.
      */
     protected int getCellHeight() {
-        return display.getHeight() / rows;
+        return display.getHeight() / viewRows;
     }
 
     /**
@@ -407,7 +1034,8 @@ public class Board extends Observable implements Observer {
     }
     
     /**
-     * Redraws this board whenever a piece is modified.
+     * Redraws this board whenever a piece is modified. The areas to be
+     * redrawn are collected and repainted together at the next frame.
      * 
      * @param changedPiece
      *        The piece that needs to be redrawn.
@@ -417,17 +1045,29 @@ public class Board extends Observable implements Observer {
     @Override
     public final void update(Observable changedPiece, Object rectangle) {
         if (rectangle == null) {
-            display.repaint();
+            repaints.addEverything();
         } else {
-            Rectangle r = (Rectangle)rectangle;
-            display.repaint(r.x, r.y, r.width, r.height);
+            repaints.add((Rectangle)rectangle);
         }
     }
+
+    /**
+     * Arranges for the given area of this board to be repainted at the
+     * next frame.
+     * 
+     * @param area The area to repaint.
+     */
+    void repaintLater(Rectangle area) {
+        repaints.add(area);
+    }
     
     /**
      * Paints this board, not including any pieces that may be on it.
      * (Pieces are requested to paint themselves by the <code>paint</code>
      * method that is defined in the <code>DisplayPanel</code> inner class.)
+     * The grid is drawn once into an image, which is redrawn only when the
+     * board is resized; each call copies just the part of that image that
+     * lies within the clip.
      * 
      * @param g
      *        The Graphics context on which this board is painted.
@@ -435,36 +1075,83 @@ public class Board extends Observable implements Observer {
     public void paint(Graphics g) {
         int height = display.getHeight();
         int width = display.getWidth();
-        int x, y;
-        Color oldColor = g.getColor();
-        Color backgroundColor = Color.white;
-        Color lineColor = new Color(192, 192, 255);
-
-        // Fill background with solid color
-        g.setColor(backgroundColor);
-        g.fillRect(0, 0, display.getWidth(), display.getHeight());
-       
-        // Paint vertical lines
-        g.setColor(lineColor);
-        for (int i = 0; i <= columns; i++) {
-            x = columnToX(i);
-            g.drawLine(x, 0, x, height);
+        if (width <= 0 || height <= 0) return;
+        if (background == null || panelHasBeenResized || viewHasChanged
+                || background.getWidth() != width
+                || background.getHeight() != height) {
+            panelHasBeenResized = false;
+            viewHasChanged = false;
+            background = createBackground(width, height);
+            sprites.clear();
         }
-        // Paint horizontal lines
-        for (int i = 0; i <= rows; i++) {
-            y = rowToY(i);
-            g.drawLine(0, y, width, y);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            g.drawImage(background, 0, 0, null);
+        } else {
+            int left = Math.max(0, clip.x);
+            int top = Math.max(0, clip.y);
+            int right = Math.min(width, clip.x + clip.width);
+            int bottom = Math.min(height, clip.y + clip.height);
+            if (left < right && top < bottom) {
+                g.drawImage(background, left, top, right, bottom,
+                            left, top, right, bottom, null);
+            }
         }
         // Mark selected square
         if (selectedRow >= 0) {
+            Color oldColor = g.getColor();
             g.setColor(Color.BLACK);
             int left = columnToX(selectedColumn);
             int top = rowToY(selectedRow);
             int right = columnToX(selectedColumn + 1);
             int bottom = rowToY(selectedRow + 1);
             g.drawRect(left, top, right - left, bottom - top); 
+            g.setColor(oldColor);
         }
-        g.setColor(oldColor);
+    }
+
+    /**
+     * Draws the empty grid of this board into a new image of the given size.
+     */
+    private BufferedImage createBackground(int width, int height) {
+        GraphicsConfiguration configuration = display.getGraphicsConfiguration();
+        BufferedImage image = configuration == null
+                ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                : configuration.createCompatibleImage(width, height);
+        Graphics g = image.getGraphics();
+        int x, y;
+
+        // Fill background with solid color
+        g.setColor(BACKGROUND_COLOR);
+        g.fillRect(0, 0, width, height);
+       
+        // Leave out the grid when its lines would be too close together
+        if (width < (long) GRID_PIXELS * viewColumns
+                || height < (long) GRID_PIXELS * viewRows) {
+            g.dispose();
+            return image;
+        }
+        // Paint vertical lines, once for each distinct x coordinate
+        g.setColor(LINE_COLOR);
+        int lastX = -1;
+        for (int i = viewColumn; i <= viewColumn + viewColumns; i++) {
+            x = columnToX(i);
+            if (x != lastX) {
+                g.drawLine(x, 0, x, height);
+                lastX = x;
+            }
+        }
+        // Paint horizontal lines
+        int lastY = -1;
+        for (int i = viewRow; i <= viewRow + viewRows; i++) {
+            y = rowToY(i);
+            if (y != lastY) {
+                g.drawLine(0, y, width, y);
+                lastY = y;
+            }
+        }
+        g.dispose();
+        return image;
     }
 
 
@@ -475,18 +1162,16 @@ public class Board extends Observable implements Observer {
         System.out.println("----------- Board is " + rows + " rows, "
                            + columns + " columns.");
         for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                if (!board[i][j].isEmpty()) {
-                    System.out.println("Board [" + i + "][" + j + "] contains:");
-                    for (Iterator<?> iter = board[i][j].iterator(); iter.hasNext();) {
-                        Piece piece = (Piece) iter.next();
-                        System.out.println("    " + piece.toString());
-                    }
+            for (int j = occupancy.nextInRow(i, 0); j >= 0; j = occupancy.nextInRow(i, j + 1)) {
+                System.out.println("Board [" + i + "][" + j + "] contains:");
+                for (Iterator<Piece> iter = piecesAt(i, j).iterator(); iter.hasNext();) {
+                    Piece piece = iter.next();
+                    System.out.println("    " + piece.toString());
                 }
             }
         }
         synchronized (allPieces) {
-            System.out.println("Vector allPieces:");
+            System.out.println("All pieces:");
             for (Iterator<Piece> iter = allPieces.iterator(); iter.hasNext();) {
                 Piece piece = iter.next();
                 System.out.println("    " + piece.toString());
@@ -509,6 +1194,9 @@ public class Board extends Observable implements Observer {
      * @author David Matuszek
      */
     private class DisplayPanel extends JPanel {
+        private Piece[] toPaint = new Piece[16];       // used only while painting
+        private long[] tileCounts = new long[0];      // ditto
+        private final Rectangle bounds = new Rectangle();  // ditto
         
         /**
          * Repaints this board and everything on it.
@@ -522,7 +1210,15 @@ public class Board extends Observable implements Observer {
         }
 
         /**
-         * Repaints this board and everything on it.
+         * Repaints this board and every piece within the clip, in as much
+         * detail as the size of a location allows. Large locations show
+         * each piece in full; when the clip covers fewer locations than
+         * there are pieces, only the pieces in those locations (and any
+         * pieces being moved) are looked at, otherwise every piece is.
+         * Locations of a few pixels show the color of their top piece,
+         * and locations smaller than a pixel are summed into tiles colored
+         * by how crowded they are. The work done is limited by the size of
+         * the clip, not of the board.
          * 
          * @param g
          *        The Graphics context on which this board is painted.
@@ -531,16 +1227,209 @@ public class Board extends Observable implements Observer {
         public void paint(Graphics g) {
             // Paint the board
             thisBoard.paint(g);
-            // Paint the pieces
-            synchronized (allPieces) {
-                for (Iterator<Piece> iter = allPieces.iterator(); iter.hasNext();) {
-                    Piece piece = iter.next();
-                    piece.paint(g, piece.getRectangle());
+            int width = getWidth();
+            int height = getHeight();
+            if (width <= 0 || height <= 0) return;
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, width, height);
+            }
+            double cellPixels = Math.min((double) width / viewColumns,
+                                         (double) height / viewRows);
+            if (cellPixels < 1) {
+                paintDensity(g, clip, width, height);
+                return;
+            }
+            // One location more on each side, for rounding differences
+            // and for pieces that draw a little beyond their location
+            int firstRow = Math.max(0, yToRow(Math.max(0, clip.y)) - 1);
+            int lastRow = Math.min(rows - 1,
+                    yToRow(Math.max(0, clip.y + clip.height - 1)) + 1);
+            int firstColumn = Math.max(0, xToColumn(Math.max(0, clip.x)) - 1);
+            int lastColumn = Math.min(columns - 1,
+                    xToColumn(Math.max(0, clip.x + clip.width - 1)) + 1);
+            if (cellPixels < DETAIL_PIXELS) {
+                paintTopColors(g, firstRow, lastRow, firstColumn, lastColumn);
+                return;
+            }
+            long locations = (long) (lastRow - firstRow + 1)
+                    * (lastColumn - firstColumn + 1);
+            if (locations < allPieces.size()) {
+                paintPiecesIn(g, firstRow, lastRow, firstColumn, lastColumn);
+                return;
+            }
+            // Paint the pieces, from a snapshot so that the board can
+            // keep changing while we paint
+            Rectangle nearClip = new Rectangle(clip);
+            nearClip.grow(getCellWidth() + 1, getCellHeight() + 1);
+            Piece[] pieces = allPieces.snapshot();
+            for (int i = 0; i < pieces.length; i++) {
+                paintPiece(g, nearClip, pieces[i]);
+            }
+        }
+
+        /**
+         * Fills each occupied location in the given block with the color
+         * of its top piece.
+         */
+        private void paintTopColors(Graphics g, int firstRow, int lastRow,
+                                    int firstColumn, int lastColumn) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                int top = rowToY(row);
+                int bottom = rowToY(row + 1);
+                for (int column = occupancy.nextInRow(row, firstColumn);
+                        column >= 0 && column <= lastColumn;
+                        column = occupancy.nextInRow(row, column + 1)) {
+                    Piece piece;
+                    ReentrantLock lock = lockFor(row, column);
+                    lock.lock();
+                    try {
+                        piece = cells.top(row, column);
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (piece == null) continue;
+                    int left = columnToX(column);
+                    g.setColor(piece.getMapColor(sprites));
+                    g.fillRect(left, top, Math.max(1, columnToX(column + 1) - left),
+                               Math.max(1, bottom - top));
+                }
+            }
+        }
+
+        /**
+         * Colors the clip by how crowded each part of it is, using the
+         * coarsest counts that are still finer than a tile. Blocks of
+         * counts much smaller than a tile are summed into the tile holding
+         * their corner; blocks about the size of a tile, or larger, are
+         * filled in directly.
+         */
+        private void paintDensity(Graphics g, Rectangle clip, int width, int height) {
+            long tileRows = Math.max(1, (long) viewRows * TILE_PIXELS / height);
+            long tileColumns = Math.max(1, (long) viewColumns * TILE_PIXELS / width);
+            int level = density.levelFor(Math.min(tileRows, tileColumns));
+            int shift = density.shift(level);
+            int firstBlockRow = yToRow(Math.max(0, clip.y)) >>> shift;
+            int lastBlockRow = yToRow(Math.max(0, clip.y + clip.height - 1)) >>> shift;
+            int firstBlockColumn = xToColumn(Math.max(0, clip.x)) >>> shift;
+            int lastBlockColumn = xToColumn(Math.max(0, clip.x + clip.width - 1)) >>> shift;
+            int tilesAcross = (clip.width + TILE_PIXELS - 1) / TILE_PIXELS;
+            int tilesDown = (clip.height + TILE_PIXELS - 1) / TILE_PIXELS;
+            if (tileCounts.length < tilesAcross * tilesDown) {
+                tileCounts = new long[tilesAcross * tilesDown];
+            }
+            long blockSide = 1L << shift;
+            boolean direct = 2 * blockSide > Math.min(tileRows, tileColumns);
+            for (int blockRow = firstBlockRow; blockRow <= lastBlockRow; blockRow++) {
+                int row = (int) Math.max(viewRow, blockRow * blockSide);
+                int top = rowToY(row);
+                int bottom = rowToY((int) Math.min(rows, (blockRow + 1) * blockSide));
+                for (int blockColumn = firstBlockColumn; blockColumn <= lastBlockColumn;
+                        blockColumn++) {
+                    int count = density.count(level, blockRow, blockColumn);
+                    if (count == 0) continue;
+                    int column = (int) Math.max(viewColumn, blockColumn * blockSide);
+                    int left = columnToX(column);
+                    int right = columnToX((int) Math.min(columns, (blockColumn + 1) * blockSide));
+                    if (direct) {
+                        g.setColor(heat(count, blockSide * blockSide));
+                        g.fillRect(left, top, Math.max(1, right - left),
+                                   Math.max(1, bottom - top));
+                    } else {
+                        int across = Math.min(tilesAcross - 1,
+                                Math.max(0, (left - clip.x) / TILE_PIXELS));
+                        int down = Math.min(tilesDown - 1,
+                                Math.max(0, (top - clip.y) / TILE_PIXELS));
+                        tileCounts[down * tilesAcross + across] += count;
+                    }
+                }
+            }
+            for (int down = 0; down < tilesDown; down++) {
+                for (int across = 0; across < tilesAcross; across++) {
+                    long count = tileCounts[down * tilesAcross + across];
+                    if (count == 0) continue;
+                    tileCounts[down * tilesAcross + across] = 0;
+                    g.setColor(heat(count, tileRows * tileColumns));
+                    g.fillRect(clip.x + across * TILE_PIXELS, clip.y + down * TILE_PIXELS,
+                               TILE_PIXELS, TILE_PIXELS);
+                }
+            }
+        }
+
+        /**
+         * Paints the pieces in the given block of locations, together with
+         * any pieces being moved, in paint order.
+         */
+        private void paintPiecesIn(Graphics g, int firstRow, int lastRow,
+                                   int firstColumn, int lastColumn) {
+            int count = 0;
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = occupancy.nextInRow(row, firstColumn);
+                        column >= 0 && column <= lastColumn;
+                        column = occupancy.nextInRow(row, column + 1)) {
+                    ReentrantLock lock = lockFor(row, column);
+                    lock.lock();
+                    try {
+                        for (int slot = cells.topSlot(row, column); slot != 0;
+                                slot = cells.below(slot)) {
+                            count = addToPaint(count, cells.piece(slot));
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            if (!movingPieces.isEmpty()) {
+                for (Piece piece : movingPieces) {
+                    count = addToPaint(count, piece);
+                }
+            }
+            Arrays.sort(toPaint, 0, count, PAINT_ORDER);
+            Piece previous = null;
+            for (int i = 0; i < count; i++) {
+                Piece piece = toPaint[i];
+                if (piece != previous) {  // a moving piece may be listed twice
+                    paintPiece(g, null, piece);
                 }
+                previous = piece;
+                toPaint[i] = null;
+            }
+        }
+
+        private int addToPaint(int count, Piece piece) {
+            if (count == toPaint.length) {
+                toPaint = Arrays.copyOf(toPaint, 2 * count);
+            }
+            toPaint[count] = piece;
+            return count + 1;
+        }
+
+        /**
+         * Paints the given piece if it is on this board and near enough to
+         * the clip. A piece may draw a little outside its own rectangle
+         * (labels often do), so anything within a location of the clip is
+         * painted and left to the clip to cut off.
+         */
+        private void paintPiece(Graphics g, Rectangle nearClip, Piece piece) {
+            if (piece.getBoard() != thisBoard) return;
+            piece.getRectangle(bounds);
+            if (nearClip == null || bounds.intersects(nearClip)) {
+                piece.paint(g, bounds, sprites);
             }
         }
     } // end inner class DisplayPanel
 
+    /**
+     * Returns the color showing how crowded an area is.
+     * 
+     * @param pieces The number of pieces in the area.
+     * @param locations The number of locations in the area.
+     */
+    private static Color heat(long pieces, long locations) {
+        double crowding = Math.min(1.0, (double) pieces / locations);
+        return HEAT[(int) Math.round(Math.sqrt(crowding) * (HEAT.length - 1))];
+    }
+
     /**
      * Mark the given piece as the selected one; unmark any previously
      * selected piece.
@@ -627,6 +1516,78 @@ public class Board extends Observable implements Observer {
         display.repaint(); // needed to erase old selection lines
     }
     
+//  -------------------------------------------------- inner class CellView
+
+    /**
+     * A read-only list of the pieces in one board location, bottom first,
+     * read directly from the board's cell store.
+     */
+    private class CellView extends AbstractList<Piece> {
+        private final int row;
+        private final int column;
+
+        CellView(int row, int column) {
+            cells.checkLocation(row, column);
+            this.row = row;
+            this.column = column;
+        }
+
+        @Override
+        public Piece get(int index) {
+            ReentrantLock lock = lockFor(row, column);
+            lock.lock();
+            try {
+                return cells.get(row, column, index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            return countPieces(row, column);
+        }
+
+        /**
+         * Returns an iterator over the pieces as they are now, collected
+         * in a single pass under the lock; <code>get</code> for each
+         * index in turn would walk the location once per piece.
+         */
+        @Override
+        public Iterator<Piece> iterator() {
+            Piece[] pieces;
+            ReentrantLock lock = lockFor(row, column);
+            lock.lock();
+            try {
+                int count = cells.size(row, column);
+                pieces = new Piece[count];
+                for (int slot = cells.topSlot(row, column); slot != 0; slot = cells.below(slot)) {
+                    pieces[--count] = cells.piece(slot);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return Arrays.asList(pieces).iterator();
+        }
+    }
+    
+//  -------------------------------------------------- interface PieceVisitor
+
+    /**
+     * Receives the pieces of one board location, one at a time, from
+     * <code>Board.forEachPiece</code>.
+     */
+    public interface PieceVisitor {
+        /**
+         * Examines one piece.
+         * 
+         * @param piece A piece in the board location being visited.
+         * @return <code>true</code> to go on to the next piece,
+         *         <code>false</code> to stop.
+         */
+        boolean visit(Piece piece);
+    }
+    
 //  -------------------------------------------------- inner class DragEvent   
 
     /**
@@ -652,4 +1613,4 @@ public class Board extends Observable implements Observer {
             notifyObservers(piece);
         }
     }
-}
\ No newline at end of file
+}
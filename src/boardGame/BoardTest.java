@@ -0,0 +1,175 @@
+package boardGame;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BoardTest {
+
+	/** A piece that is never drawn. */
+	private static class Marker extends Piece {
+		Marker(String name) {
+			super(name);
+		}
+
+		@Override
+		public void paint(java.awt.Graphics g, java.awt.Rectangle r) {
+		}
+	}
+
+	@Test
+	public void testRemoveTwice() {
+		Board board = new Board(10, 10);
+		Piece piece = new Marker("a");
+		board.place(piece, 3, 4);
+		assertTrue(board.remove(piece));
+		assertFalse(board.remove(piece));
+		assertNull(board.getPiece(3, 4));
+		assertEquals(-1, board.distanceToNearestPiece(3, 0, 0, 1));
+	}
+
+	@Test
+	public void testStaleMoveChangesNothing() {
+		Board board = new Board(10, 10);
+		Piece piece = new Marker("a");
+		Piece other = new Marker("b");
+		board.place(piece, 3, 4);
+		board.place(other, 5, 5);
+		assertFalse(board.changePositionOnBoard(piece, 5, 5, 6, 6));
+		assertSame(other, board.getPiece(5, 5));
+		assertNull(board.getPiece(6, 6));
+		assertEquals(3, piece.getRow());
+		assertTrue(board.remove(piece));
+		assertNull(board.getPiece(3, 4));
+		assertSame(other, board.getPiece(5, 5));
+		assertEquals(1, board.distanceToNearestPiece(5, 4, 0, 1));
+	}
+
+	@Test
+	public void testMoveUpdatesPositionForRemove() {
+		Board board = new Board(10, 10);
+		Piece piece = new Marker("a");
+		board.place(piece, 3, 4);
+		assertTrue(board.changePositionOnBoard(piece, 3, 4, 7, 8));
+		assertEquals(7, piece.getRow());
+		assertEquals(8, piece.getColumn());
+		assertTrue(board.remove(piece));
+		assertNull(board.getPiece(7, 8));
+		assertNull(board.getPiece(3, 4));
+	}
+
+	@Test
+	public void testPlaceOffBoardLeavesPieceFree() {
+		Board board = new Board(10, 10);
+		Piece piece = new Marker("a");
+		try {
+			board.place(piece, 10, 0);
+			fail();
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// expected
+		}
+		assertNull(piece.getBoard());
+		board.place(piece, 0, 0);
+		assertSame(piece, board.getPiece(0, 0));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testPlaceTwice() {
+		Board board = new Board(10, 10);
+		Piece piece = new Marker("a");
+		board.place(piece, 0, 0);
+		board.place(piece, 1, 1);
+	}
+
+	@Test
+	public void testConcurrentPlacesOfOnePiece() throws InterruptedException {
+		for (int round = 0; round < 200; round++) {
+			final Board board = new Board(200, 200);
+			final Piece piece = new Marker("a");
+			final int[] placed = { 0 };
+			Thread[] threads = new Thread[4];
+			for (int i = 0; i < threads.length; i++) {
+				final int row = 64 * i;
+				threads[i] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							board.place(piece, row, row);
+							synchronized (placed) {
+								placed[0]++;
+							}
+						} catch (IllegalArgumentException e) {
+							// another thread placed it first
+						}
+					}
+				};
+			}
+			for (Thread thread : threads) thread.start();
+			for (Thread thread : threads) thread.join();
+			assertEquals(1, placed[0]);
+			int found = 0;
+			for (int i = 0; i < threads.length; i++) {
+				if (board.getPiece(64 * i, 64 * i) != null) found++;
+			}
+			assertEquals(1, found);
+		}
+	}
+
+	@Test
+	public void testConcurrentPlaceAndRemove() throws InterruptedException {
+		for (int round = 0; round < 500; round++) {
+			final Board board = new Board(10, 10);
+			final Piece piece = new Marker("a");
+			Piece anchor = new Marker("b");
+			board.place(anchor, 0, 0);
+			Thread placer = new Thread() {
+				@Override
+				public void run() {
+					board.place(piece, 5, 5);
+				}
+			};
+			Thread remover = new Thread() {
+				@Override
+				public void run() {
+					while (!board.remove(piece)) {
+						board.moveToTop(piece);
+						Thread.yield();
+					}
+				}
+			};
+			remover.start();
+			placer.start();
+			placer.join();
+			remover.join();
+			assertNull(piece.getBoard());
+			assertEquals(-1, piece.getRow());
+			assertNull(board.getPiece(5, 5));
+			assertSame(anchor, board.getPiece(0, 0));
+			board.clear();
+			assertNull(board.getPiece(0, 0));
+			assertNull(anchor.getBoard());
+		}
+	}
+
+	@Test
+	public void testPiecesAtIteratesBottomFirst() {
+		Board board = new Board(10, 10);
+		Piece a = new Marker("a");
+		Piece b = new Marker("b");
+		Piece c = new Marker("c");
+		java.util.List<Piece> cell = board.piecesAt(2, 3);
+		board.place(a, 2, 3);
+		board.place(b, 2, 3);
+		board.place(c, 2, 3);
+		StringBuilder names = new StringBuilder();
+		for (Piece piece : cell) {
+			names.append(piece.getName());
+		}
+		assertEquals("abc", names.toString());
+		assertSame(b, cell.get(1));
+		board.remove(b);
+		assertEquals(2, cell.size());
+		assertTrue(cell.contains(c));
+		assertFalse(cell.contains(b));
+	}
+}
@@ -0,0 +1,208 @@
+package boardGame;
+
+/**
+ * Holds the pieces in each location of a board. Each location is a single
+ * <code>int</code> naming the slot of its topmost piece; the slots form
+ * short linked lists (topmost piece first) in a shared, growable arena, and
+ * slots given up by removed pieces are reused. Subclasses decide where the
+ * per-location <code>int</code>s are kept.
+ * <p>
+ * Only handing out and taking back slots is synchronized here. The caller
+ * must make sure that no two threads work on the same location at once
+ * (<code>Board</code> uses striped locks for that); work on different
+ * locations may proceed in parallel. The arena grows by adding fixed-size
+ * segments, never by copying, so a slot written by one thread is never
+ * lost to another thread's growth.
+ */
+abstract class CellStore {
+    private static final int NONE = 0;  // slot 0 is never used
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final int rows;
+    private final int columns;
+    private final Object arenaLock = new Object();
+    private volatile Piece[][] pieces = { new Piece[SEGMENT_SIZE] };  // the piece in each slot
+    private volatile int[][] below = { new int[SEGMENT_SIZE] };      // slot beneath each slot
+    private int freeSlots = NONE;            // first slot of the free list (linked through below)
+    private int unusedSlot = 1;              // first slot never yet used
+
+    /**
+     * Creates an empty store for a board of the given size.
+     *
+     * @param rows The number of rows.
+     * @param columns The number of columns.
+     */
+    CellStore(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Returns the slot of the topmost piece at the given location, which
+     * is known to exist, or zero if the location is empty.
+     */
+    abstract int head(int row, int column);
+
+    /**
+     * Records the slot of the topmost piece at the given location, which
+     * is known to exist; zero means the location is now empty.
+     */
+    abstract void setHead(int row, int column, int slot);
+
+    /**
+     * Checks that the given location exists.
+     *
+     * @throws ArrayIndexOutOfBoundsException If the location does not exist.
+     */
+    private void check(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new ArrayIndexOutOfBoundsException("[" + row + "][" + column + "]");
+        }
+    }
+
+    /**
+     * Checks that the given location exists.
+     *
+     * @throws ArrayIndexOutOfBoundsException If the location does not exist.
+     */
+    void checkLocation(int row, int column) {
+        check(row, column);
+    }
+
+    /**
+     * Returns the number of pieces at the given location.
+     */
+    int size(int row, int column) {
+        int count = 0;
+        for (int slot = topSlot(row, column); slot != NONE; slot = below(slot)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the topmost piece at the given location, or <code>null</code>.
+     */
+    Piece top(int row, int column) {
+        return piece(topSlot(row, column));
+    }
+
+    /**
+     * Returns the slot of the topmost piece at the given location, or
+     * zero if the location is empty. Use <code>below</code> and
+     * <code>piece</code> to walk down from there.
+     */
+    int topSlot(int row, int column) {
+        check(row, column);
+        return head(row, column);
+    }
+
+    /**
+     * Returns the slot beneath the given one, or zero at the bottom.
+     */
+    int below(int slot) {
+        return below[slot >>> SEGMENT_BITS][slot & SEGMENT_MASK];
+    }
+
+    private void setBelow(int slot, int next) {
+        below[slot >>> SEGMENT_BITS][slot & SEGMENT_MASK] = next;
+    }
+
+    /**
+     * Returns the piece held in the given slot.
+     */
+    Piece piece(int slot) {
+        return pieces[slot >>> SEGMENT_BITS][slot & SEGMENT_MASK];
+    }
+
+    /**
+     * Returns the piece at the given position, counting from the bottom
+     * piece (index 0) of the given location.
+     *
+     * @throws IndexOutOfBoundsException If there is no such piece.
+     */
+    Piece get(int row, int column, int index) {
+        int count = size(row, column);
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+        int slot = head(row, column);
+        for (int i = count - 1; i > index; i--) {
+            slot = below(slot);
+        }
+        return piece(slot);
+    }
+
+    /**
+     * Puts the given piece on top of the given location.
+     */
+    void push(int row, int column, Piece piece) {
+        check(row, column);
+        int slot = allocate(piece);
+        setBelow(slot, head(row, column));
+        setHead(row, column, slot);
+    }
+
+    /**
+     * Takes the given piece out of the given location.
+     *
+     * @return <code>true</code> if the piece was there.
+     */
+    boolean remove(int row, int column, Piece piece) {
+        check(row, column);
+        int previous = NONE;
+        for (int slot = head(row, column); slot != NONE; slot = below(slot)) {
+            if (piece(slot) == piece) {
+                if (previous == NONE) {
+                    setHead(row, column, below(slot));
+                } else {
+                    setBelow(previous, below(slot));
+                }
+                release(slot);
+                return true;
+            }
+            previous = slot;
+        }
+        return false;
+    }
+
+    /**
+     * Hands out an unused slot holding the given piece.
+     */
+    private int allocate(Piece piece) {
+        synchronized (arenaLock) {
+            int slot = freeSlots;
+            if (slot != NONE) {
+                freeSlots = below(slot);
+            } else {
+                slot = unusedSlot++;
+                int segment = slot >>> SEGMENT_BITS;
+                if (segment == pieces.length) {
+                    Piece[][] newPieces = new Piece[segment + 1][];
+                    int[][] newBelow = new int[segment + 1][];
+                    System.arraycopy(pieces, 0, newPieces, 0, segment);
+                    System.arraycopy(below, 0, newBelow, 0, segment);
+                    newPieces[segment] = new Piece[SEGMENT_SIZE];
+                    newBelow[segment] = new int[SEGMENT_SIZE];
+                    below = newBelow;
+                    pieces = newPieces;
+                }
+            }
+            pieces[slot >>> SEGMENT_BITS][slot & SEGMENT_MASK] = piece;
+            return slot;
+        }
+    }
+
+    /**
+     * Takes back a slot that no location refers to any more.
+     */
+    private void release(int slot) {
+        synchronized (arenaLock) {
+            pieces[slot >>> SEGMENT_BITS][slot & SEGMENT_MASK] = null;
+            setBelow(slot, freeSlots);
+            freeSlots = slot;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package boardGame;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CellStoreTest {
+
+	/** A piece that is never drawn. */
+	private static class Marker extends Piece {
+		Marker(String name) {
+			super(name);
+		}
+
+		@Override
+		public void paint(java.awt.Graphics g, java.awt.Rectangle r) {
+		}
+	}
+
+	@Test
+	public void testChunkedStoreMatchesDenseStore() {
+		int rows = 300;
+		int columns = 200;
+		CellStore dense = new DenseCellStore(rows, columns);
+		ChunkedCellStore chunked = new ChunkedCellStore(rows, columns);
+		Occupancy denseIndex = new OccupancyIndex(rows, columns);
+		Occupancy sparseIndex = new SparseOccupancyIndex(rows, columns);
+		Piece[] pieces = new Piece[500];
+		int[] row = new int[pieces.length];
+		int[] column = new int[pieces.length];
+		Random random = new Random(3);
+		for (int step = 0; step < 20000; step++) {
+			int i = random.nextInt(pieces.length);
+			if (pieces[i] == null) {
+				pieces[i] = new Marker("m" + i);
+				row[i] = random.nextInt(rows);
+				column[i] = random.nextInt(columns);
+				dense.push(row[i], column[i], pieces[i]);
+				chunked.push(row[i], column[i], pieces[i]);
+				denseIndex.set(row[i], column[i]);
+				sparseIndex.set(row[i], column[i]);
+			} else {
+				assertTrue(dense.remove(row[i], column[i], pieces[i]));
+				assertTrue(chunked.remove(row[i], column[i], pieces[i]));
+				if (dense.topSlot(row[i], column[i]) == 0) {
+					denseIndex.clear(row[i], column[i]);
+					sparseIndex.clear(row[i], column[i]);
+				}
+				pieces[i] = null;
+			}
+			int r = random.nextInt(rows);
+			int c = random.nextInt(columns);
+			assertEquals(dense.size(r, c), chunked.size(r, c));
+			assertSame(dense.top(r, c), chunked.top(r, c));
+			assertEquals(denseIndex.nextInRow(r, c), sparseIndex.nextInRow(r, c));
+			assertEquals(denseIndex.previousInRow(r, c), sparseIndex.previousInRow(r, c));
+			assertEquals(denseIndex.nextInColumn(c, r), sparseIndex.nextInColumn(c, r));
+			assertEquals(denseIndex.previousInColumn(c, r), sparseIndex.previousInColumn(c, r));
+		}
+		for (int i = 0; i < pieces.length; i++) {
+			if (pieces[i] != null) {
+				chunked.remove(row[i], column[i], pieces[i]);
+			}
+		}
+		assertEquals(0, chunked.chunkCount());
+	}
+
+	@Test
+	public void testChunkMapMatchesHashMap() {
+		ChunkMap<Integer> chunks = new ChunkMap<Integer>();
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		Random random = new Random(5);
+		for (int step = 0; step < 50000; step++) {
+			int r = random.nextInt(40) - 20;
+			int c = random.nextInt(40) - 20;
+			Long key = ((long) r << 32) | (c & 0xFFFFFFFFL);
+			if (random.nextInt(3) == 0) {
+				chunks.remove(r, c);
+				expected.remove(key);
+			} else {
+				chunks.put(r, c, step);
+				expected.put(key, step);
+			}
+			r = random.nextInt(40) - 20;
+			c = random.nextInt(40) - 20;
+			assertEquals(expected.get(((long) r << 32) | (c & 0xFFFFFFFFL)), chunks.get(r, c));
+			assertEquals(expected.size(), chunks.size());
+		}
+	}
+
+	@Test
+	public void testChunkMapReadsDuringOtherChanges() throws InterruptedException {
+		final ChunkMap<Integer> chunks = new ChunkMap<Integer>();
+		final boolean[] failed = { false };
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int region = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					// Each thread owns the chunks in its own row, as a region lock would give it
+					for (int step = 0; step < 20000; step++) {
+						int column = step % 50;
+						chunks.put(region, column, step);
+						if (!Integer.valueOf(step).equals(chunks.get(region, column))) failed[0] = true;
+						if (step % 3 != 0) {
+							chunks.remove(region, column);
+							if (chunks.get(region, column) != null) failed[0] = true;
+						}
+					}
+				}
+			};
+		}
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads) thread.join();
+		assertFalse(failed[0]);
+	}
+
+	@Test
+	public void testStackOrder() {
+		CellStore store = new DenseCellStore(2, 2);
+		Piece a = new Marker("a");
+		Piece b = new Marker("b");
+		Piece c = new Marker("c");
+		store.push(1, 1, a);
+		store.push(1, 1, b);
+		store.push(1, 1, c);
+		assertSame(c, store.top(1, 1));
+		assertSame(a, store.get(1, 1, 0));
+		assertSame(b, store.get(1, 1, 1));
+		store.remove(1, 1, b);
+		assertEquals(2, store.size(1, 1));
+		assertSame(a, store.get(1, 1, 0));
+		assertNull(store.top(0, 1));
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testMissingLocation() {
+		new ChunkedCellStore(100000, 100000).top(0, 100000);
+	}
+}
@@ -0,0 +1,139 @@
+package boardGame;
+
+/**
+ * A small hash map from chunk coordinates to chunks, used by the sparse
+ * board structures. Keys are (chunk row, chunk column) pairs; looking a
+ * chunk up allocates nothing and takes no lock, so threads working in
+ * different regions of a board do not wait for one another.
+ * <p>
+ * Chunks are added and dropped far less often than they are looked up,
+ * so changes are synchronized and reads are not. To make that safe, each
+ * entry is immutable, a removed entry is replaced by a marker rather than
+ * having later entries moved into its place, and a table that has to grow
+ * is built in full before it replaces the old one. A reader may not see a
+ * change made at the same moment by another thread, but it never sees a
+ * half-made one, and it always sees the entries for its own region when
+ * it holds the board's lock for that region.
+ *
+ * @param <V> The type of chunk stored.
+ */
+final class ChunkMap<V> {
+    private static final Entry DELETED = new Entry(0, null);
+
+    private volatile Entry[] table = new Entry[16];
+    private int size;  // entries other than DELETED
+    private int used;  // slots that are not null, including DELETED
+
+    /** One key and its chunk; never changed once made. */
+    private static final class Entry {
+        final long key;
+        final Object value;
+
+        Entry(long key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static long key(int chunkRow, int chunkColumn) {
+        return ((long) chunkRow << 32) | (chunkColumn & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * Returns the number of chunks in this map.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the chunk at the given coordinates, or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int chunkRow, int chunkColumn) {
+        long key = key(chunkRow, chunkColumn);
+        Entry[] entries = table;
+        int mask = entries.length - 1;
+        for (int i = hash(key, mask); entries[i] != null; i = (i + 1) & mask) {
+            Entry entry = entries[i];
+            if (entry != DELETED && entry.key == key) return (V) entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Stores a chunk at the given coordinates, replacing any chunk
+     * already there.
+     */
+    synchronized void put(int chunkRow, int chunkColumn, V chunk) {
+        long key = key(chunkRow, chunkColumn);
+        Entry[] entries = table;
+        int mask = entries.length - 1;
+        int free = -1;
+        int i = hash(key, mask);
+        for (; entries[i] != null; i = (i + 1) & mask) {
+            if (entries[i] == DELETED) {
+                if (free < 0) free = i;
+            } else if (entries[i].key == key) {
+                entries[i] = new Entry(key, chunk);
+                return;
+            }
+        }
+        if (free < 0) {
+            if (2 * (used + 1) > entries.length) {
+                rehash();
+                put(chunkRow, chunkColumn, chunk);
+                return;
+            }
+            free = i;
+            used++;
+        }
+        entries[free] = new Entry(key, chunk);
+        size++;
+    }
+
+    /**
+     * Removes the chunk at the given coordinates, if there is one.
+     */
+    synchronized void remove(int chunkRow, int chunkColumn) {
+        long key = key(chunkRow, chunkColumn);
+        Entry[] entries = table;
+        int mask = entries.length - 1;
+        for (int i = hash(key, mask); entries[i] != null; i = (i + 1) & mask) {
+            if (entries[i] != DELETED && entries[i].key == key) {
+                entries[i] = DELETED;
+                size--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the table by one without DELETED markers, large enough
+     * that it is at most a quarter full.
+     */
+    private void rehash() {
+        Entry[] oldEntries = table;
+        int capacity = 16;
+        while (capacity < 4 * (size + 1)) {
+            capacity *= 2;
+        }
+        Entry[] entries = new Entry[capacity];
+        int mask = capacity - 1;
+        for (Entry entry : oldEntries) {
+            if (entry == null || entry == DELETED) continue;
+            int i = hash(entry.key, mask);
+            while (entries[i] != null) {
+                i = (i + 1) & mask;
+            }
+            entries[i] = entry;
+        }
+        used = size;
+        table = entries;
+    }
+}
@@ -0,0 +1,53 @@
+package boardGame;
+
+/**
+ * A <code>CellStore</code> for very large, mostly empty boards. The board
+ * is divided into 64 x 64 chunks, and a chunk is stored only while some
+ * location in it holds a piece; empty regions cost nothing.
+ */
+final class ChunkedCellStore extends CellStore {
+    private static final int COUNT = 64 * 64;  // chunk[COUNT] = nonempty locations in chunk
+
+    private final ChunkMap<int[]> chunks = new ChunkMap<int[]>();
+
+    /**
+     * Creates an empty store for a board of the given size.
+     *
+     * @param rows The number of rows.
+     * @param columns The number of columns.
+     */
+    ChunkedCellStore(int rows, int columns) {
+        super(rows, columns);
+    }
+
+    /**
+     * Returns the number of chunks currently stored.
+     */
+    int chunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    int head(int row, int column) {
+        int[] chunk = chunks.get(row >>> 6, column >>> 6);
+        return chunk == null ? 0 : chunk[((row & 63) << 6) | (column & 63)];
+    }
+
+    @Override
+    void setHead(int row, int column, int slot) {
+        int[] chunk = chunks.get(row >>> 6, column >>> 6);
+        if (chunk == null) {
+            if (slot == 0) return;
+            chunk = new int[COUNT + 1];
+            chunks.put(row >>> 6, column >>> 6, chunk);
+        }
+        int index = ((row & 63) << 6) | (column & 63);
+        int old = chunk[index];
+        chunk[index] = slot;
+        if (old == 0 && slot != 0) {
+            chunk[COUNT]++;
+        } else if (old != 0 && slot == 0 && --chunk[COUNT] == 0) {
+            chunks.remove(row >>> 6, column >>> 6);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package boardGame;
+
+/**
+ * A <code>CellStore</code> that keeps one <code>int</code> for every
+ * location of the board in a single array. An empty board costs four
+ * bytes per location.
+ */
+final class DenseCellStore extends CellStore {
+    private final int columns;
+    private final int[] top;  // slot of the topmost piece at each location
+
+    /**
+     * Creates an empty store for a board of the given size.
+     *
+     * @param rows The number of rows.
+     * @param columns The number of columns.
+     */
+    DenseCellStore(int rows, int columns) {
+        super(rows, columns);
+        if ((long) rows * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A dense board of " + rows + " x " + columns
+                                               + " locations is too large");
+        }
+        this.columns = columns;
+        top = new int[rows * columns];
+    }
+
+    @Override
+    int head(int row, int column) {
+        return top[row * columns + column];
+    }
+
+    @Override
+    void setHead(int row, int column, int slot) {
+        top[row * columns + column] = slot;
+    }
+}
@@ -0,0 +1,102 @@
+package boardGame;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts the pieces in square blocks of a board, at several block sizes
+ * (each eight times the one before), so that a zoomed-out view can show
+ * how crowded each part of the board is by reading a few counts per
+ * pixel rather than looking at every location.
+ * <p>
+ * The smallest blocks are 64 locations on a side, or larger if needed to
+ * keep the finest level to about a million counts. The counts are atomic,
+ * since pieces in one block may be added and removed under different locks.
+ */
+final class DensityMap {
+    private static final int MAX_BLOCKS = 1 << 20;
+
+    private final int[] shifts;            // log2 of the block side, per level
+    private final int[] blockColumns;      // blocks per row, per level
+    private final AtomicIntegerArray[] counts;
+
+    /**
+     * Creates an empty map for a board of the given size.
+     *
+     * @param rows The number of rows.
+     * @param columns The number of columns.
+     */
+    DensityMap(int rows, int columns) {
+        int shift = 6;
+        while (blocks(rows, columns, shift) > MAX_BLOCKS) {
+            shift += 3;
+        }
+        int levels = 1;
+        for (int s = shift; (rows - 1L) >> s > 0 || (columns - 1L) >> s > 0; s += 3) {
+            levels++;
+        }
+        shifts = new int[levels];
+        blockColumns = new int[levels];
+        counts = new AtomicIntegerArray[levels];
+        for (int level = 0; level < levels; level++, shift += 3) {
+            shifts[level] = shift;
+            blockColumns[level] = (int) (((long) columns + (1L << shift) - 1) >> shift);
+            counts[level] = new AtomicIntegerArray((int) blocks(rows, columns, shift));
+        }
+    }
+
+    private static long blocks(int rows, int columns, int shift) {
+        return (((long) rows + (1L << shift) - 1) >> shift)
+                * (((long) columns + (1L << shift) - 1) >> shift);
+    }
+
+    /**
+     * Records that a piece has been added to the given location.
+     */
+    void add(int row, int column) {
+        for (int level = 0; level < counts.length; level++) {
+            counts[level].incrementAndGet(index(level, row, column));
+        }
+    }
+
+    /**
+     * Records that a piece has been taken from the given location.
+     */
+    void remove(int row, int column) {
+        for (int level = 0; level < counts.length; level++) {
+            counts[level].decrementAndGet(index(level, row, column));
+        }
+    }
+
+    private int index(int level, long row, long column) {
+        int shift = shifts[level];
+        return (int) (row >>> shift) * blockColumns[level] + (int) (column >>> shift);
+    }
+
+    /**
+     * Returns the level whose blocks are the largest no more than the given
+     * number of locations on a side; the finest level if even its blocks
+     * are larger.
+     */
+    int levelFor(long side) {
+        int level = 0;
+        while (level + 1 < shifts.length && (1L << shifts[level + 1]) <= side) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns log2 of the number of locations on a side of the blocks at
+     * the given level.
+     */
+    int shift(int level) {
+        return shifts[level];
+    }
+
+    /**
+     * Returns the number of pieces in the given block of the given level.
+     */
+    int count(int level, int blockRow, int blockColumn) {
+        return counts[level].get(blockRow * blockColumns[level] + blockColumn);
+    }
+}
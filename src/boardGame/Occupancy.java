@@ -0,0 +1,47 @@
+package boardGame;
+
+/**
+ * Records which locations of a board are occupied, and finds the nearest
+ * occupied location along a row or a column.
+ */
+interface Occupancy {
+
+    /**
+     * Marks the given location as occupied.
+     */
+    void set(int row, int column);
+
+    /**
+     * Marks the given location as empty.
+     */
+    void clear(int row, int column);
+
+    /**
+     * Tests whether the given location is marked as occupied.
+     */
+    boolean isSet(int row, int column);
+
+    /**
+     * Returns the first occupied column at or after <code>from</code> in
+     * the given row, or -1 if there is none.
+     */
+    int nextInRow(int row, int from);
+
+    /**
+     * Returns the last occupied column at or before <code>from</code> in
+     * the given row, or -1 if there is none.
+     */
+    int previousInRow(int row, int from);
+
+    /**
+     * Returns the first occupied row at or after <code>from</code> in
+     * the given column, or -1 if there is none.
+     */
+    int nextInColumn(int column, int from);
+
+    /**
+     * Returns the last occupied row at or before <code>from</code> in
+     * the given column, or -1 if there is none.
+     */
+    int previousInColumn(int column, int from);
+}
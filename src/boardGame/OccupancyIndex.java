@@ -0,0 +1,96 @@
+package boardGame;
+
+/**
+ * Records which cells of a board are occupied, as one bitset per row and
+ * one bitset per column. Finding the nearest occupied cell along a row or
+ * a column then examines 64 cells per step and allocates nothing.
+ */
+final class OccupancyIndex implements Occupancy {
+    private final int rows;
+    private final int columns;
+    private final int rowWords;     // longs per row bitset
+    private final int columnWords;  // longs per column bitset
+    private final long[] rowBits;
+    private final long[] columnBits;
+
+    /**
+     * Creates an empty index for a board of the given size.
+     *
+     * @param rows The number of rows.
+     * @param columns The number of columns.
+     */
+    OccupancyIndex(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        rowWords = (columns + 63) >>> 6;
+        columnWords = (rows + 63) >>> 6;
+        rowBits = new long[rows * rowWords];
+        columnBits = new long[columns * columnWords];
+    }
+
+    @Override
+    public void set(int row, int column) {
+        rowBits[row * rowWords + (column >>> 6)] |= 1L << column;
+        columnBits[column * columnWords + (row >>> 6)] |= 1L << row;
+    }
+
+    @Override
+    public void clear(int row, int column) {
+        rowBits[row * rowWords + (column >>> 6)] &= ~(1L << column);
+        columnBits[column * columnWords + (row >>> 6)] &= ~(1L << row);
+    }
+
+    @Override
+    public boolean isSet(int row, int column) {
+        return (rowBits[row * rowWords + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    @Override
+    public int nextInRow(int row, int from) {
+        return next(rowBits, row * rowWords, rowWords, columns, from);
+    }
+
+    @Override
+    public int previousInRow(int row, int from) {
+        return previous(rowBits, row * rowWords, columns, from);
+    }
+
+    @Override
+    public int nextInColumn(int column, int from) {
+        return next(columnBits, column * columnWords, columnWords, rows, from);
+    }
+
+    @Override
+    public int previousInColumn(int column, int from) {
+        return previous(columnBits, column * columnWords, rows, from);
+    }
+
+    private static int next(long[] bits, int offset, int words, int length, int from) {
+        if (from < 0) from = 0;
+        if (from >= length) return -1;
+        int word = from >>> 6;
+        long current = bits[offset + word] & (-1L << from);
+        while (true) {
+            if (current != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(current);
+                return index < length ? index : -1;
+            }
+            if (++word == words) return -1;
+            current = bits[offset + word];
+        }
+    }
+
+    private static int previous(long[] bits, int offset, int length, int from) {
+        if (from < 0) return -1;
+        if (from >= length) from = length - 1;
+        int word = from >>> 6;
+        long current = bits[offset + word] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (current != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(current);
+            }
+            if (word-- == 0) return -1;
+            current = bits[offset + word];
+        }
+    }
+}
@@ -1,4 +1,5 @@
 package boardGame;
+import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
@@ -19,17 +20,28 @@ public abstract class Piece extends Observable {
     protected Board board;
     
     private String name;
-    private int row = -1;  // -1 means not on any board
-    private int column = -1;
-    private boolean moving = false;
+    private volatile int row = -1;  // -1 means not on any board
+    private volatile int column = -1;
+    private volatile boolean moving = false;
     private boolean draggable = false;
     private boolean selectable = true;
-    private int x;
-    private int y;
+    private volatile int x;
+    private volatile int y;
     private int speed = -1; // Negative means to use board default
-    private static final int PAUSE_MS = 15;
-    private static final int FRAME_RATE = 1000 / PAUSE_MS;
     private static Piece pieceBeingDragged = null;
+    
+    /** Links in the board's paint order; maintained by <code>ZOrder</code>. */
+    Piece zBelow, zAbove;
+    
+    /** Position in the board's paint order (higher is painted later); 0 if none. */
+    long zRank;
+    
+    /** The picture this piece was last painted from, if any. */
+    private SpriteCache.Sprite sprite;
+    private static final int MAP_SPRITE_SIZE = 24;  // for getMapColor
+    
+    /** Moves not yet shown; maintained by <code>Animator</code>. */
+    int pendingMoves;
 
     /**
      * Creates a piece. The piece is not placed on a
@@ -146,18 +158,28 @@ public abstract class Piece extends Observable {
      * @return The rectangle in which to paint this piece.
      */
     protected Rectangle getRectangle() {
+        Rectangle r = new Rectangle();
+        getRectangle(r);
+        return r;
+    }
+
+    /**
+     * Stores the rectangle in which this piece should be painted into the
+     * given rectangle, so that painting need not allocate one per piece.
+     * 
+     * @param r The rectangle to be set.
+     */
+    final void getRectangle(Rectangle r) {
         int leftEdge = getX() + 1;
         int topEdge = getY() + 1;
-        int width;
-        int height;
         if (moving) {
-            width = board.getCellWidth() - 1;
-            height = board.getCellHeight() - 1;
+            r.setBounds(leftEdge, topEdge,
+                        board.getCellWidth() - 1, board.getCellHeight() - 1);
         } else {
-            width = board.columnToX(column + 1) - leftEdge;
-            height = board.rowToY(row + 1) - topEdge;
+            r.setBounds(leftEdge, topEdge,
+                        board.columnToX(column + 1) - leftEdge,
+                        board.rowToY(row + 1) - topEdge);
         }
-        return new Rectangle(leftEdge, topEdge, width, height);
     }
 
     /**
@@ -235,10 +257,23 @@ public abstract class Piece extends Observable {
     /** For internal use only! */
     final void removeHelper() {
         redraw();
+        if (moving) {
+            board.movingChanged(this, false);
+        }
         board = null;
         row = column = -1;
     }
 
+    /**
+     * Records where this piece is. Called from Board, holding the locks
+     * for the piece's old and new locations, so that the board can tell
+     * where the piece is while holding either.
+     */
+    final void positionHelper(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
     /**
      * Tests whether this piece is on some (any) board.
      * 
@@ -294,6 +329,63 @@ public abstract class Piece extends Observable {
      * @param r The rectangle in which to paint this piece.
      */
     public abstract void paint(Graphics g, Rectangle r);
+
+    /**
+     * Returns an object describing everything, apart from its class and
+     * the size of its rectangle, that decides how this piece is drawn; two
+     * pieces of the same class with equal appearances must draw the same
+     * picture. The board then draws each picture only once and copies it
+     * wherever it is needed. The default, <code>null</code>, means that
+     * this piece must always be painted afresh.
+     * 
+     * @return This piece's appearance, or <code>null</code>.
+     */
+    protected Object getAppearance() {
+        return null;
+    }
+
+    /**
+     * Paints this piece within the given rectangle, copying its picture
+     * from the given cache if it has an appearance.
+     * 
+     * @param g The Graphics object on which painting should be done.
+     * @param r The rectangle in which to paint this piece.
+     * @param sprites The pictures of pieces on this piece's board.
+     */
+    final void paint(Graphics g, Rectangle r, SpriteCache sprites) {
+        Object appearance = getAppearance();
+        if (appearance == null || r.width <= 0 || r.height <= 0) {
+            paint(g, r);
+            return;
+        }
+        SpriteCache.Sprite s = sprite;
+        if (s == null || !s.matches(sprites, getClass(), appearance, r.width, r.height)) {
+            s = sprites.get(this, appearance, r.width, r.height);
+            sprite = s;
+        }
+        g.drawImage(s.image, r.x, r.y, null);
+    }
+
+    /**
+     * Returns a single color that stands for this piece on a zoomed-out
+     * view of the board: the average color of its picture, if it has an
+     * appearance.
+     * 
+     * @param sprites The pictures of pieces on this piece's board.
+     * @return The color to show.
+     */
+    final Color getMapColor(SpriteCache sprites) {
+        Object appearance = getAppearance();
+        if (appearance == null) {
+            return SpriteCache.DEFAULT_MAP_COLOR;
+        }
+        SpriteCache.Sprite s = sprite;
+        if (s == null || !s.looksLike(sprites, getClass(), appearance)) {
+            s = sprites.get(this, appearance, MAP_SPRITE_SIZE, MAP_SPRITE_SIZE);
+            sprite = s;
+        }
+        return s.mapColor();
+    }
     
     /**
      * Ensures that this piece will be drawn on top of any other pieces
@@ -322,68 +414,67 @@ public abstract class Piece extends Observable {
     }
 
     /**
-     * Moves this piece to a new position on the board.
+     * Moves this piece to a new position on the board. The board is
+     * changed at once; if the board is animated, the piece is then shown
+     * sliding smoothly to its new position while the caller carries on.
      * 
      * @param newRow
      *        The destination row.
      * @param newColumn
      *        The destination column.
      * @return <code>false</code> if the destination is not a legal board
-     *         position, or if the piece is already moving.
+     *         position, or if the piece is being dragged.
      */
     public boolean moveTo(int newRow, int newColumn) {
         if (!board.isLegalPosition(newRow, newColumn))
             return false;
-        if (moving)
+        if (this == pieceBeingDragged)
             return false;
-        int startX = board.columnToX(column);
-        int startY = board.rowToY(row);
-        int finishX = board.columnToX(newColumn);
-        int finishY = board.rowToY(newRow);
-        int changeInX = finishX - startX;
-        int changeInY = finishY - startY;
-        Rectangle oldRect = getRectangle();
-        Rectangle newRect = new Rectangle(oldRect);
-        
-        // compensate for squares being slightly different sizes
-        oldRect.width += 2;
-        newRect.width += 2;
-        oldRect.height += 2;
-        newRect.height += 2;
-
-        // Move smoothly towards new position
-        moving = true;
         board.moveToTop(this);
         int deltaRow = Math.abs(row - newRow);
         int deltaColumn = Math.abs(column - newColumn);
         int distance = Math.max(deltaRow, deltaColumn)
                 + Math.min(deltaRow, deltaColumn) / 2;
-        int numberOfSteps = distance * FRAME_RATE / getSpeed();
-        
-        for (int i = 1; i <= numberOfSteps; i++) {
-            oldRect.x = x;
-            oldRect.y = y;
-            x = startX + (i * changeInX) / numberOfSteps;
-            y = startY + (i * changeInY) / numberOfSteps;
-            newRect.x = x;
-            newRect.y = y;
-            board.getJPanel().paintImmediately(oldRect.union(newRect));
-//            redraw(oldRect.union(newRect));
-
-            try {
-                Thread.sleep(PAUSE_MS);
-            }
-            catch (InterruptedException e) { /* Deliberately empty */ }
-            
+        int numberOfSteps = distance * Animator.FRAME_RATE / getSpeed();
+        if (board.isAnimated() && numberOfSteps > 0) {
+            board.getAnimator().animate(this, row, column,
+                                        newRow, newColumn, numberOfSteps);
         }
-        moving = false;
         if (canMoveTo(newRow, newColumn)) {
             changePosition(newRow, newColumn);
         }
-        redraw(oldRect.union(newRect));
         return true;
     }
 
+    /**
+     * Shows this piece at the given pixel position, rather than in its
+     * location, until <code>endAnimation</code> is called.
+     */
+    final void startAnimation(int x, int y) {
+        this.x = x;
+        this.y = y;
+        setMoving(true);
+    }
+
+    /**
+     * Shows this piece in its location again.
+     */
+    final void endAnimation() {
+        setMoving(false);
+    }
+
+    /**
+     * Records whether this piece is being shown away from its location,
+     * and tells the board, which must paint such pieces wherever they are.
+     */
+    private void setMoving(boolean moving) {
+        this.moving = moving;
+        Board b = board;
+        if (b != null) {
+            b.movingChanged(this, moving);
+        }
+    }
+
     /**
      * Determines whether this piece can be moved to the specified
      * location. The default behavior is to return <code>true</code>
@@ -431,11 +522,13 @@ public abstract class Piece extends Observable {
             return;
         int oldRow = row;
         int oldColumn = column;
-        board.changePositionOnBoard(this, oldRow, oldColumn, newRow, newColumn);
-        row = newRow;
-        column = newColumn;
-        x = board.columnToX(column);
-        y = board.rowToY(row);
+        if (!board.changePositionOnBoard(this, oldRow, oldColumn, newRow, newColumn)) {
+            return;
+        }
+        if (!moving) {
+            x = board.columnToX(column);
+            y = board.rowToY(row);
+        }
         redraw();
     }
 
@@ -447,17 +540,15 @@ public abstract class Piece extends Observable {
     }
 
     /**
-     * Causes the given rectangle to be redrawn.
+     * Causes the given rectangle to be redrawn. The board collects the
+     * areas to be redrawn and repaints them together at its next frame,
+     * so this method returns at once.
      * 
      * @param rect The area to be redrawn.
      */
     public void redraw(Rectangle rect) {
         setChanged();
         notifyObservers(rect);
-        try {
-            Thread.sleep(PAUSE_MS);
-        }
-        catch (InterruptedException e) { /* Deliberately empty */ }
     }
 
 //  ------------------------------ Inner class MouseDragger
@@ -497,12 +588,12 @@ public abstract class Piece extends Observable {
             if (pieceBeingDragged != null) {
                 return; // can only drag one piece at a time
             }
-            if (!chosenPiece.draggable) {
-                return;
+            if (!chosenPiece.draggable || chosenPiece.moving) {
+                return;  // can't drag a piece that is still being animated
             }
             pieceBeingDragged = chosenPiece;
             board = pieceBeingDragged.board;
-            pieceBeingDragged.moving = true;
+            pieceBeingDragged.setMoving(true);
             board.moveToTop(pieceBeingDragged);
         }
 
@@ -562,7 +653,7 @@ public abstract class Piece extends Observable {
             if (pieceBeingDragged.canMoveTo(newRow, newColumn)) {
                 pieceBeingDragged.changePosition(newRow, newColumn);
             }
-            pieceBeingDragged.moving = false;
+            pieceBeingDragged.setMoving(false);
             newRect = pieceBeingDragged.getRectangle();
             pieceBeingDragged.redraw(pieceBeingDragged.enlarge(oldRect.union(newRect)));  
             board.dragEvent.reportEvent(pieceBeingDragged);
@@ -595,4 +686,4 @@ public abstract class Piece extends Observable {
         System.out.println("    draggable = " + draggable + ", selectable = " +
                            selectable + ", moving = " + moving);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package boardGame;
+
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Collects the areas of a board's display that need repainting and asks
+ * for them to be repainted once per frame. Areas that overlap, touch, or
+ * lie so close together that one rectangle around them would cost no more
+ * to paint than the two separately, are merged as they arrive; if too
+ * many separate areas build up in one frame, the whole of them is painted
+ * as one.
+ * <p>
+ * Areas may be added from any thread; they are handed to Swing on the
+ * event dispatch thread.
+ */
+final class RepaintCoalescer implements ActionListener {
+    private static final int MAX_REGIONS = 8;
+
+    private final JComponent display;
+    private final Timer timer;
+    private ArrayList<Rectangle> regions = new ArrayList<Rectangle>();
+    private boolean everything;
+
+    /**
+     * Creates a coalescer for the given component.
+     *
+     * @param display The component to be repainted.
+     */
+    RepaintCoalescer(JComponent display) {
+        this.display = display;
+        timer = new Timer(Animator.PAUSE_MS, this);
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Adds an area to be repainted at the next frame.
+     *
+     * @param area The area to repaint; it is not modified.
+     */
+    void add(Rectangle area) {
+        if (area.width <= 0 || area.height <= 0) return;
+        synchronized (this) {
+            if (everything) return;
+            Rectangle merged = new Rectangle(area);
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (Iterator<Rectangle> iter = regions.iterator(); iter.hasNext();) {
+                    Rectangle region = iter.next();
+                    if (worthMerging(merged, region)) {
+                        merged.add(region);
+                        iter.remove();
+                        changed = true;
+                    }
+                }
+            }
+            regions.add(merged);
+            if (regions.size() > MAX_REGIONS) {
+                Rectangle all = regions.get(0);
+                for (int i = 1; i < regions.size(); i++) {
+                    all.add(regions.get(i));
+                }
+                regions.clear();
+                regions.add(all);
+            }
+        }
+        timer.start();
+    }
+
+    /**
+     * Arranges for the whole display to be repainted at the next frame.
+     */
+    void addEverything() {
+        synchronized (this) {
+            everything = true;
+            regions.clear();
+        }
+        timer.start();
+    }
+
+    /**
+     * Tells whether painting the smallest rectangle around both areas
+     * costs no more than painting each of them.
+     */
+    private static boolean worthMerging(Rectangle a, Rectangle b) {
+        long left = Math.min(a.x, b.x);
+        long top = Math.min(a.y, b.y);
+        long right = Math.max((long) a.x + a.width, (long) b.x + b.width);
+        long bottom = Math.max((long) a.y + a.height, (long) b.y + b.height);
+        return (right - left) * (bottom - top)
+                <= (long) a.width * a.height + (long) b.width * b.height;
+    }
+
+    /**
+     * Asks Swing to repaint everything collected since the last frame.
+     * Called by the timer on the event dispatch thread.
+     *
+     * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+     */
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        ArrayList<Rectangle> dirty;
+        boolean all;
+        synchronized (this) {
+            dirty = regions;
+            all = everything;
+            regions = new ArrayList<Rectangle>();
+            everything = false;
+        }
+        if (all) {
+            display.repaint();
+        } else {
+            for (Rectangle r : dirty) {
+                display.repaint(r.x, r.y, r.width, r.height);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package boardGame;
+
+/**
+ * An <code>Occupancy</code> for very large, mostly empty boards. The board
+ * is divided into 64 x 64 chunks, and only chunks that contain an occupied
+ * location are stored. Each stored chunk holds one 64-bit mask per row and
+ * per column; a coarse <code>OccupancyIndex</code> over the chunks lets a
+ * search jump straight from one stored chunk to the next.
+ * <p>
+ * A chunk is only changed by the thread holding the board's lock for its
+ * region; the chunk map and the coarse index are shared by all regions.
+ * The chunk map guards itself. The coarse index is changed only while
+ * synchronized on it, and each change is then published through a
+ * volatile counter, which searches read before they use the index; so
+ * searches take no lock, and still see every change completed before
+ * they began.
+ */
+final class SparseOccupancyIndex implements Occupancy {
+    private static final int COUNT = 128;  // chunk[COUNT] = occupied locations in chunk
+
+    private final int rows;
+    private final int columns;
+    private final ChunkMap<long[]> chunks = new ChunkMap<long[]>();
+    private final OccupancyIndex chunkIndex;
+    private volatile int chunkIndexChanges;  // see the class comment
+
+    /**
+     * Creates an empty index for a board of the given size.
+     *
+     * @param rows The number of rows.
+     * @param columns The number of columns.
+     */
+    SparseOccupancyIndex(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        chunkIndex = new OccupancyIndex((rows + 63) >>> 6, (columns + 63) >>> 6);
+    }
+
+    @Override
+    public void set(int row, int column) {
+        long[] chunk = chunks.get(row >>> 6, column >>> 6);
+        if (chunk == null) {
+            chunk = new long[COUNT + 1];
+            chunks.put(row >>> 6, column >>> 6, chunk);
+            synchronized (chunkIndex) {
+                chunkIndex.set(row >>> 6, column >>> 6);
+                chunkIndexChanges++;
+            }
+        }
+        long bit = 1L << column;
+        if ((chunk[row & 63] & bit) == 0) {
+            chunk[row & 63] |= bit;
+            chunk[64 + (column & 63)] |= 1L << row;
+            chunk[COUNT]++;
+        }
+    }
+
+    @Override
+    public void clear(int row, int column) {
+        long[] chunk = chunks.get(row >>> 6, column >>> 6);
+        long bit = 1L << column;
+        if (chunk == null || (chunk[row & 63] & bit) == 0) return;
+        chunk[row & 63] &= ~bit;
+        chunk[64 + (column & 63)] &= ~(1L << row);
+        if (--chunk[COUNT] == 0) {
+            chunks.remove(row >>> 6, column >>> 6);
+            synchronized (chunkIndex) {
+                chunkIndex.clear(row >>> 6, column >>> 6);
+                chunkIndexChanges++;
+            }
+        }
+    }
+
+    /**
+     * Returns the coarse index, after reading the counter that publishes
+     * changes to it.
+     */
+    private OccupancyIndex chunkIndex() {
+        int changes = chunkIndexChanges;  // a volatile read
+        return chunkIndex;
+    }
+
+    @Override
+    public boolean isSet(int row, int column) {
+        long[] chunk = chunks.get(row >>> 6, column >>> 6);
+        return chunk != null && (chunk[row & 63] & (1L << column)) != 0;
+    }
+
+    @Override
+    public int nextInRow(int row, int from) {
+        if (from < 0) from = 0;
+        if (from >= columns) return -1;
+        int chunkRow = row >>> 6;
+        int chunkColumn = from >>> 6;
+        long[] chunk = chunks.get(chunkRow, chunkColumn);
+        long mask = chunk == null ? 0 : chunk[row & 63] & (-1L << from);
+        while (mask == 0) {
+            chunkColumn = chunkIndex().nextInRow(chunkRow, chunkColumn + 1);
+            if (chunkColumn < 0) return -1;
+            chunk = chunks.get(chunkRow, chunkColumn);
+            mask = chunk == null ? 0 : chunk[row & 63];
+        }
+        return (chunkColumn << 6) + Long.numberOfTrailingZeros(mask);
+    }
+
+    @Override
+    public int previousInRow(int row, int from) {
+        if (from < 0) return -1;
+        if (from >= columns) from = columns - 1;
+        int chunkRow = row >>> 6;
+        int chunkColumn = from >>> 6;
+        long[] chunk = chunks.get(chunkRow, chunkColumn);
+        long mask = chunk == null ? 0 : chunk[row & 63] & (-1L >>> (63 - (from & 63)));
+        while (mask == 0) {
+            chunkColumn = chunkIndex().previousInRow(chunkRow, chunkColumn - 1);
+            if (chunkColumn < 0) return -1;
+            chunk = chunks.get(chunkRow, chunkColumn);
+            mask = chunk == null ? 0 : chunk[row & 63];
+        }
+        return (chunkColumn << 6) + 63 - Long.numberOfLeadingZeros(mask);
+    }
+
+    @Override
+    public int nextInColumn(int column, int from) {
+        if (from < 0) from = 0;
+        if (from >= rows) return -1;
+        int chunkColumn = column >>> 6;
+        int chunkRow = from >>> 6;
+        long[] chunk = chunks.get(chunkRow, chunkColumn);
+        long mask = chunk == null ? 0 : chunk[64 + (column & 63)] & (-1L << from);
+        while (mask == 0) {
+            chunkRow = chunkIndex().nextInColumn(chunkColumn, chunkRow + 1);
+            if (chunkRow < 0) return -1;
+            chunk = chunks.get(chunkRow, chunkColumn);
+            mask = chunk == null ? 0 : chunk[64 + (column & 63)];
+        }
+        return (chunkRow << 6) + Long.numberOfTrailingZeros(mask);
+    }
+
+    @Override
+    public int previousInColumn(int column, int from) {
+        if (from < 0) return -1;
+        if (from >= rows) from = rows - 1;
+        int chunkColumn = column >>> 6;
+        int chunkRow = from >>> 6;
+        long[] chunk = chunks.get(chunkRow, chunkColumn);
+        long mask = chunk == null ? 0 : chunk[64 + (column & 63)] & (-1L >>> (63 - (from & 63)));
+        while (mask == 0) {
+            chunkRow = chunkIndex().previousInColumn(chunkColumn, chunkRow - 1);
+            if (chunkRow < 0) return -1;
+            chunk = chunks.get(chunkRow, chunkColumn);
+            mask = chunk == null ? 0 : chunk[64 + (column & 63)];
+        }
+        return (chunkRow << 6) + 63 - Long.numberOfLeadingZeros(mask);
+    }
+}
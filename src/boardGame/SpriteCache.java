@@ -0,0 +1,177 @@
+package boardGame;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JComponent;
+
+/**
+ * Pictures of pieces, drawn once and then copied onto the board. A piece
+ * that describes its appearance (see <code>Piece.getAppearance</code>) is
+ * drawn into an image the first time it is painted at a given size; every
+ * other piece of the same class and appearance painted at that size is
+ * then a single <code>drawImage</code>.
+ * <p>
+ * Each picture extends one rectangle's width to the right of and one
+ * rectangle's height below the piece's own rectangle, since labels often
+ * run over. The least recently used pictures are dropped once there are
+ * more than <code>MAX_SPRITES</code>, and all of them when the board is
+ * resized. Used only on the event dispatch thread.
+ */
+final class SpriteCache {
+    private static final int MAX_SPRITES = 256;
+    /** The color on a zoomed-out map of pieces that have no appearance. */
+    static final Color DEFAULT_MAP_COLOR = Color.gray;
+
+    private final JComponent display;
+    private int generation;
+    private final Map<Sprite, Sprite> sprites =
+        new LinkedHashMap<Sprite, Sprite>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Sprite, Sprite> eldest) {
+                return size() > MAX_SPRITES;
+            }
+        };
+
+    /**
+     * A picture of pieces of one class and appearance, at one size.
+     */
+    static final class Sprite {
+        final SpriteCache owner;
+        final int generation;
+        final Class<?> type;
+        final Object appearance;
+        final int width, height;
+        BufferedImage image;
+        private Color mapColor;  // computed when first needed
+
+        Sprite(SpriteCache owner, Class<?> type, Object appearance,
+               int width, int height) {
+            this.owner = owner;
+            this.generation = owner.generation;
+            this.type = type;
+            this.appearance = appearance;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Tells whether this picture, which a piece painted last time,
+         * is still right for it; allocates nothing.
+         */
+        boolean matches(SpriteCache cache, Class<?> type, Object appearance,
+                        int width, int height) {
+            return this.width == width && this.height == height
+                    && looksLike(cache, type, appearance);
+        }
+
+        /**
+         * Tells whether this picture shows pieces of the given class and
+         * appearance, at whatever size.
+         */
+        boolean looksLike(SpriteCache cache, Class<?> type, Object appearance) {
+            return owner == cache && generation == cache.generation
+                    && this.type == type && this.appearance.equals(appearance);
+        }
+
+        /**
+         * Returns the average color of the piece in this picture, for
+         * showing it as a single block of color on a zoomed-out map.
+         */
+        Color mapColor() {
+            if (mapColor == null) {
+                long red = 0, green = 0, blue = 0, count = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int argb = image.getRGB(x, y);
+                        if ((argb >>> 24) != 0) {
+                            red += (argb >> 16) & 0xFF;
+                            green += (argb >> 8) & 0xFF;
+                            blue += argb & 0xFF;
+                            count++;
+                        }
+                    }
+                }
+                mapColor = count == 0 ? DEFAULT_MAP_COLOR
+                        : new Color((int) (red / count), (int) (green / count),
+                                    (int) (blue / count));
+            }
+            return mapColor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Sprite)) return false;
+            Sprite that = (Sprite) o;
+            return type == that.type && width == that.width
+                    && height == that.height && appearance.equals(that.appearance);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((type.hashCode() * 31 + appearance.hashCode()) * 31 + width) * 31 + height;
+        }
+    }
+
+    /**
+     * Creates an empty cache of pictures to be painted on the given component.
+     *
+     * @param display The component on which pieces are painted.
+     */
+    SpriteCache(JComponent display) {
+        this.display = display;
+    }
+
+    /**
+     * Returns the picture of the given piece at the given size, drawing it
+     * if need be.
+     *
+     * @param piece The piece.
+     * @param appearance The piece's appearance; not <code>null</code>.
+     * @param width The width of the piece's rectangle.
+     * @param height The height of the piece's rectangle.
+     * @return The picture.
+     */
+    Sprite get(Piece piece, Object appearance, int width, int height) {
+        Sprite key = new Sprite(this, piece.getClass(), appearance, width, height);
+        Sprite sprite = sprites.get(key);
+        if (sprite == null) {
+            key.image = draw(piece, width, height);
+            sprites.put(key, key);
+            sprite = key;
+        }
+        return sprite;
+    }
+
+    /**
+     * Forgets every picture, as when the board has been resized.
+     */
+    void clear() {
+        sprites.clear();
+        generation++;
+    }
+
+    /**
+     * Draws the given piece into a new, transparent image.
+     */
+    private BufferedImage draw(Piece piece, int width, int height) {
+        GraphicsConfiguration configuration = display.getGraphicsConfiguration();
+        BufferedImage image = configuration == null
+                ? new BufferedImage(2 * width, 2 * height, BufferedImage.TYPE_INT_ARGB)
+                : configuration.createCompatibleImage(2 * width, 2 * height,
+                                                      Transparency.TRANSLUCENT);
+        Graphics g = image.getGraphics();
+        g.setFont(display.getFont());
+        piece.paint(g, new Rectangle(0, 0, width, height));
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,136 @@
+package boardGame;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The pieces on a board, in the order in which they are painted (bottom
+ * first). The pieces themselves hold the links of this doubly linked
+ * list, so adding a piece, removing it, and bringing it to the top all
+ * take constant time however many pieces there are.
+ * <p>
+ * Like the <code>Vector</code> it replaces, this list uses itself as its
+ * lock; hold that lock while iterating. Painting instead uses
+ * <code>snapshot</code>, an array that is rebuilt only after a change and
+ * never modified afterwards, so it can be read without the lock while the
+ * board goes on changing.
+ */
+final class ZOrder implements Iterable<Piece> {
+    private Piece bottom;
+    private Piece top;
+    private int size;
+    private Piece[] snapshot = new Piece[0];  // null once out of date
+    private long nextRank = 1;                 // zRank of the next piece on top
+
+    /**
+     * Returns the number of pieces in this list.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the piece painted last, or <code>null</code> if there are
+     * no pieces.
+     */
+    synchronized Piece top() {
+        return top;
+    }
+
+    /**
+     * Adds the given piece, which must not be in this list, on top of all
+     * the others. Each piece added gets a higher <code>zRank</code> than
+     * any before it, so sorting pieces by rank puts them in the order of
+     * this list; a piece that is in no list has a <code>zRank</code> of 0.
+     */
+    synchronized void add(Piece piece) {
+        piece.zRank = nextRank++;
+        piece.zBelow = top;
+        piece.zAbove = null;
+        if (top == null) {
+            bottom = piece;
+        } else {
+            top.zAbove = piece;
+        }
+        top = piece;
+        size++;
+        snapshot = null;
+    }
+
+    /**
+     * Removes the given piece. Does nothing if the piece is not in this list.
+     */
+    synchronized void remove(Piece piece) {
+        if (piece.zRank == 0) return;
+        if (piece.zBelow == null) {
+            bottom = piece.zAbove;
+        } else {
+            piece.zBelow.zAbove = piece.zAbove;
+        }
+        if (piece.zAbove == null) {
+            top = piece.zBelow;
+        } else {
+            piece.zAbove.zBelow = piece.zBelow;
+        }
+        piece.zAbove = piece.zBelow = null;
+        piece.zRank = 0;
+        size--;
+        snapshot = null;
+    }
+
+    /**
+     * Moves the given piece above all the others. Does nothing if the
+     * piece is not in this list.
+     */
+    synchronized void moveToTop(Piece piece) {
+        if (piece.zRank == 0 || piece == top) return;
+        remove(piece);
+        add(piece);
+    }
+
+    /**
+     * Returns the pieces, bottom first, as they were at the time of the
+     * latest change. The array must not be modified; it is shared by all
+     * callers until the next change.
+     */
+    synchronized Piece[] snapshot() {
+        if (snapshot == null) {
+            Piece[] pieces = new Piece[size];
+            int i = 0;
+            for (Piece piece = bottom; piece != null; piece = piece.zAbove) {
+                pieces[i++] = piece;
+            }
+            snapshot = pieces;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns an iterator over the pieces, bottom first. The caller
+     * should hold the lock on this list.
+     */
+    @Override
+    public Iterator<Piece> iterator() {
+        return new Iterator<Piece>() {
+            private Piece next = bottom;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Piece next() {
+                if (next == null) throw new NoSuchElementException();
+                Piece result = next;
+                next = next.zAbove;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
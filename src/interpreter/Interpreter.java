@@ -2,13 +2,35 @@
  * 
  */
 package interpreter;
+import ast.BinOp;
+import ast.Block;
+import ast.Call;
+import ast.Compare;
+import ast.Condition;
+import ast.Def;
+import ast.Drop;
+import ast.Expression;
+import ast.Holding;
+import ast.If;
+import ast.Literal;
+import ast.Move;
+import ast.Node;
+import ast.Not;
+import ast.Program;
+import ast.Repeat;
+import ast.Seeing;
+import ast.Sensor;
+import ast.Set;
+import ast.Statement;
+import ast.Take;
+import ast.Turn;
+import ast.Unary;
+import ast.Var;
+import ast.While;
 import boardGame.Board;
-import tree.Tree;
-import tokenizer.Token;
-import tokenizer.TokenType;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Stack;
 
 /**
@@ -19,36 +41,57 @@ public class Interpreter extends Thread{
 	
 	RobotController controller;
 	Board board;
-	Tree<Token> program;
-	HashMap<String, Tree<Token>> procedureMap;
+	Program program;
+	HashMap<String, Def> procedureMap;
 	boolean isStopped, pause;
 	Stack<HashMap<String, Integer>> varStack;
+	SimulationClock clock = new SimulationClock();
+	/** Simulated milliseconds taken by each robot action. */
+	static final int ACTION_MS = 100;
 	/**
 	 * constructor, to create a RobotController,
 	 * and tell it what program to interpret and where to display its actions.
 	 * @param program
 	 * @param board
 	 */
-	Interpreter(Tree<Token> program, Board board){
+	Interpreter(Program program, Board board){
 		controller = new RobotController(board);
 		this.board = board;
 		this.program = program;
 		isStopped = false;
-		procedureMap = new HashMap<String, Tree<Token>>();
+		procedureMap = new HashMap<String, Def>();
 		varStack = new Stack<HashMap<String, Integer>>();
 		varStack.push(new HashMap<String, Integer>());
 	}
+	/**
+	 * constructor, as above, but pacing the robot's actions by the given clock.
+	 * @param program
+	 * @param board
+	 * @param clock
+	 */
+	Interpreter(Program program, Board board, SimulationClock clock){
+		this(program, board);
+		this.clock = clock;
+	}
 	/**
 	 * Constructor for Test use
 	 * @param program
 	 */
-	Interpreter(Tree<Token> program){
+	Interpreter(Program program){
 		this.program = program;
 		isStopped = false;
-		procedureMap = new HashMap<String, Tree<Token>>();
+		procedureMap = new HashMap<String, Def>();
 		varStack = new Stack<HashMap<String, Integer>>();
 		varStack.push(new HashMap<String, Integer>());
 	}
+	/**
+	 * Starts interpreting the program in a new thread, pacing it from now.
+	 */
+	@Override
+	public void start(){
+		clock.reset();
+		super.start();
+	}
 	/**
 	 * To interpret the program. 
 	 * This method isn't called directly; the GUI calls the Thread's start() method.
@@ -84,226 +127,228 @@ public class Interpreter extends Thread{
 		return this.pause;
 	}
 	/**
-	 * Given the root of a Tree representing an arithmetic expression,
+	 * Given the root of a syntax tree representing an arithmetic expression,
 	 * evaluate the expression and return the numerical result.
-	 * @param expression --a Tree representing an arithmetic expression
+	 * @param expression --a syntax tree representing an arithmetic expression
 	 * @return numerical result of an arithmetic expression
-	 * @throws Exception 
+	 * @throws Exception
 	 */
-	public int evaluateExpression(Tree<Token> expression) throws Exception{
-		if(expression.isLeaf()){
-			if(expression.getValue().type == TokenType.INT){
-				return Integer.parseInt(expression.getValue().text);
-			}else if("row".equals(expression.getValue().text)){
-				return controller.getRobotRow();	
-			}else if("column".equals(expression.getValue().text)){
+	public int evaluateExpression(Expression expression) throws Exception{
+		switch(expression.kind){
+		case LITERAL:
+			return ((Literal) expression).value;
+		case VAR:
+			return findValue(((Var) expression).name);
+		case SENSOR:
+			switch(((Sensor) expression).reading){
+			case ROW:
+				return controller.getRobotRow();
+			case COLUMN:
 				return controller.getRobotCol();
-			}else if("distance".equals(expression.getValue().text)){
+			default:
 				return controller.getDistance();
-			}else{
-				return findValue(expression.getValue().text);
 			}
-		}else{
-			if("+".equals(expression.getValue().text)){
-				if(expression.children().size() == 1){
-					return evaluateExpression(expression.firstChild());
-				}else{
-					int number1 = evaluateExpression(expression.firstChild());
-					int number2 = evaluateExpression(expression.firstChild().nextSibling());
-					return number1+number2;
-				}
-			}else if("-".equals(expression.getValue().text)){
-				if(expression.children().size() == 1){
-					return 0-evaluateExpression(expression.firstChild());
-				}else{
-					int number1 = evaluateExpression(expression.firstChild());
-					int number2 = evaluateExpression(expression.firstChild().nextSibling());
-					return number1-number2;
-				}
-			}else if("*".equals(expression.getValue().text)){
-
-				int number1 = evaluateExpression(expression.firstChild());
-				int number2 = evaluateExpression(expression.firstChild().nextSibling());
+		case UNARY:{
+			Unary unary = (Unary) expression;
+			int number = evaluateExpression(unary.operand);
+			return unary.operator == BinOp.Operator.SUBTRACT ? 0-number : number;
+		}
+		case BIN_OP:{
+			BinOp op = (BinOp) expression;
+			int number1 = evaluateExpression(op.left);
+			int number2 = evaluateExpression(op.right);
+			switch(op.operator){
+			case ADD:
+				return number1+number2;
+			case SUBTRACT:
+				return number1-number2;
+			case MULTIPLY:
 				return number1*number2;
-
-			}else if("/".equals(expression.getValue().text)){
-				try{
-					int number1 = evaluateExpression(expression.firstChild());
-					int number2 = evaluateExpression(expression.firstChild().nextSibling());
-					return number1/number2;
-				}catch(Exception e){
-
-				}
-			}else if("%".equals(expression.getValue().text)){
-				try{
-					int number1 = evaluateExpression(expression.firstChild());
-					int number2 = evaluateExpression(expression.firstChild().nextSibling());
-					return number1%number2;
-				}catch(Exception e){
-
-				}
-			}else{
-				throw new Exception("Not Expression");
+			case DIVIDE:
+				return number2 == 0 ? 0 : number1/number2;
+			default:
+				return number2 == 0 ? 0 : number1%number2;
 			}
 		}
-		return 0;
+		default:
+			throw new Exception("Not Expression");
+		}
 	}
 	/**
-	 * Given the root of a Tree representing a condition,
+	 * Given the root of a syntax tree representing a condition,
 	 * evaluate the condition and return the boolean result.
-	 * @param root --a Tree representing a condition
+	 * @param root --a syntax tree representing a condition
 	 * @return boolean result of evaluating given condition
-	 * @throws Exception 
+	 * @throws Exception
 	 */
-	public boolean evaluateCondition(Tree<Token> root) throws Exception{
-		if("not".equals(root.getValue().text)){
-			return !evaluateCondition(root.firstChild());
-		}else if("==".equals(root.getValue().text)){
-			int number1 = evaluateExpression(root.firstChild());
-			int number2 = evaluateExpression(root.firstChild().nextSibling());
-			return number1 == number2;
-		}else if("!=".equals(root.getValue().text)){
-			int number1 = evaluateExpression(root.firstChild());
-			int number2 = evaluateExpression(root.firstChild().nextSibling());
-			return number1 != number2;
-		}else if("<".equals(root.getValue().text)){
-			int number1 = evaluateExpression(root.firstChild());
-			int number2 = evaluateExpression(root.firstChild().nextSibling());
-			return number1 < number2;
-		}else if("<=".equals(root.getValue().text)){
-			int number1 = evaluateExpression(root.firstChild());
-			int number2 = evaluateExpression(root.firstChild().nextSibling());
-			return number1 <= number2;
-		}else if(">".equals(root.getValue().text)){
-			int number1 = evaluateExpression(root.firstChild());
-			int number2 = evaluateExpression(root.firstChild().nextSibling());
-			return number1 > number2;
-		}else if(">=".equals(root.getValue().text)){
-			int number1 = evaluateExpression(root.firstChild());
-			int number2 = evaluateExpression(root.firstChild().nextSibling());
-			return number1 >= number2;
-		}else if("seeing".equals((root.getValue().text))){
-			String thing = root.firstChild().getValue().text;
-			return controller.findPieceOnTheWay(thing);
-		}else if("holding".equals(root.getValue().text)){
-			String thing = root.firstChild().getValue().text;
-			return controller.isHolding(thing);
+	public boolean evaluateCondition(Condition root) throws Exception{
+		switch(root.kind){
+		case NOT:
+			return !evaluateCondition(((Not) root).condition);
+		case COMPARE:{
+			Compare compare = (Compare) root;
+			int number1 = evaluateExpression(compare.left);
+			int number2 = evaluateExpression(compare.right);
+			switch(compare.operator){
+			case EQUAL:
+				return number1 == number2;
+			case NOT_EQUAL:
+				return number1 != number2;
+			case LESS:
+				return number1 < number2;
+			case LESS_OR_EQUAL:
+				return number1 <= number2;
+			case GREATER:
+				return number1 > number2;
+			default:
+				return number1 >= number2;
+			}
+		}
+		case SEEING:
+			return controller.findPieceOnTheWay(((Seeing) root).thing);
+		case HOLDING:
+			return controller.isHolding(((Holding) root).thing);
+		default:
+			return false;
 		}
-		return false;
 	}
 	/**
-	 * Given the root of a Tree representing a program or a command, 
-	 * interpret the program or command 
-	 * @param root --a Tree representing a program or a command
-	 * @throws Exception 
+	 * Given the root of a syntax tree representing a program or a command,
+	 * interpret the program or command
+	 * @param root --a syntax tree representing a program or a command
+	 * @throws Exception
 	 */
-	public void interprete(Tree<Token> root) throws Exception{
+	public void interprete(Node root) throws Exception{
 		if(!isStopped){
-			while (pause) {
-				try { sleep(100); }
-				catch (InterruptedException e) { }
-			} 
-			if("program".equals(root.getValue().text)){
-				ArrayList<Tree<Token>> children = root.children();
-				for(int i=children.size()-1;i>=0;i--){
-					interprete(children.get(i));
+			if (pause) {
+				while (pause) {
+					try { sleep(100); }
+					catch (InterruptedException e) { }
 				}
-			}else if("def".equals(root.getValue().text)){
-				ArrayList<Tree<Token>> children = root.children();
-				if("header".equals(children.get(0).getValue().text)){
-					String name = children.get(0).children().get(0).getValue().text;
-					procedureMap.put(name, root);
+				clock.reset();  // don't make up the time spent paused
+			}
+			switch(root.kind){
+			case PROGRAM:{
+				//define the procedures, the first of any duplicates last so that it wins, then run the main block
+				Program program = (Program) root;
+				for(int i=program.procedures.size()-1;i>=0;i--){
+					interprete(program.procedures.get(i));
 				}
-			}else if("block".equals(root.getValue().text)){
+				interprete(program.main);
+				break;
+			}
+			case DEF:{
+				Def def = (Def) root;
+				procedureMap.put(def.name, def);
+				break;
+			}
+			case BLOCK:{
 				//interpret each statement in the block, one after the other from the first.
-				ArrayList<Tree<Token>> children = root.children();
-				for(int i=0; i<children.size();i++){
-					interprete(children.get(i));
+				List<Statement> statements = ((Block) root).statements;
+				for(int i=0; i<statements.size();i++){
+					interprete(statements.get(i));
 				}
-			}else if("set".equals(root.getValue().text)){//command -> thought
+				break;
+			}
+			case SET:{//command -> thought
 				//"set" <variable> <expression>
-				ArrayList<Tree<Token>> children = root.children();
-				int var = evaluateExpression(children.get(1));
-				varStack.peek().put(children.get(0).getValue().text, var);
-			}else if("repeat".equals(root.getValue().text)){
+				Set set = (Set) root;
+				int var = evaluateExpression(set.value);
+				varStack.peek().put(set.variable, var);
+				break;
+			}
+			case REPEAT:{
 				//"repeat" <expression> <block>
-				ArrayList<Tree<Token>> children = root.children();
-				int var = evaluateExpression(children.get(0));
+				Repeat repeat = (Repeat) root;
+				int var = evaluateExpression(repeat.count);
 				while(var>0){
-					interprete(children.get(1));
+					interprete(repeat.body);
 					var--;
 				}
-			}else if("while".equals(root.getValue().text)){
+				break;
+			}
+			case WHILE:{
 				//"while" <condition> <block>
-				ArrayList<Tree<Token>> children = root.children();	
-				while(evaluateCondition(children.get(0))){
-					interprete(children.get(1));
+				While loop = (While) root;
+				while(evaluateCondition(loop.condition)){
+					interprete(loop.body);
 				}
-			}else if("if".equals(root.getValue().text)){
+				break;
+			}
+			case IF:{
 				//"if" <condition> <block> [ "else" <block> ]
-				ArrayList<Tree<Token>> children = root.children();
-				if(evaluateCondition(children.get(0))){
-					interprete(children.get(1));
-				}else if(children.size()>2){
-					interprete(children.get(2));
+				If conditional = (If) root;
+				if(evaluateCondition(conditional.condition)){
+					interprete(conditional.thenBlock);
+				}else if(conditional.elseBlock != null){
+					interprete(conditional.elseBlock);
 				}
-
-			}else if("call".equals(root.getValue().text)){
-				String name = root.children().get(0).getValue().text;//procedure name
+				break;
+			}
+			case CALL:{
+				Call call = (Call) root;
 				/*Look up the procedure, by name, in hash table of procedure names.*/
-				Tree<Token> procedureCalled = procedureMap.get(name);
+				Def procedureCalled = procedureMap.get(call.name);
 				if(procedureCalled != null){
 					/*Create a new HashMap and put it on the Stack of HashMaps.*/
 					varStack.push(new HashMap<String, Integer>());
 					HashMap<String, Integer> tempMap = varStack.peek();
 					/*For each <variable> in the def, evaluate the corresponding <expression>s in the call*/
-					String varName;
-					Tree<Token> varInt;
-					ArrayList<Tree<Token>> headerChildren = procedureCalled.firstChild().children();
-					for(int i=1; i<headerChildren.size(); i++){//put all parameter into tempMap
-						varName = headerChildren.get(i).getValue().text;
-						varInt = root.children().get(i);
-						if(varInt != null){
-							tempMap.put(varName, evaluateExpression(varInt));
+					List<String> parameters = procedureCalled.parameters;
+					for(int i=0; i<parameters.size(); i++){//put all parameter into tempMap
+						if(i < call.arguments.size()){
+							tempMap.put(parameters.get(i), evaluateExpression(call.arguments.get(i)));
 						}else{
-							tempMap.put(varName, 0);
+							tempMap.put(parameters.get(i), 0);
 						}
 					}
 					/*Evaluate the procedure body, using the Stack of HashMaps.*/
-					interprete(procedureCalled.children().get(1));
+					interprete(procedureCalled.body);
 					/*When the procedure finishes, pop the new HashMap from the Stack.*/
-					varStack.pop(); 
+					varStack.pop();
 				}
-			}else if("forward".equals(root.getValue().text)){//command->action
-				//<action> ::= <move> <expression> 
-				int var = evaluateExpression(root.firstChild());
-				controller.moveForward(var);
-				sleep(100);
-			}else if("back".equals(root.getValue().text)){
-				int var = evaluateExpression(root.firstChild());
-				controller.moveBackward(var);
-				sleep(100);
-			}else if("turn".equals(root.getValue().text)){
-				String direction = root.firstChild().getValue().text;
-				if("right".equals(direction)){
+				break;
+			}
+			case MOVE:{//command->action
+				//<action> ::= <move> <expression>
+				Move move = (Move) root;
+				int var = evaluateExpression(move.distance);
+				if(move.direction == Move.Direction.FORWARD){
+					controller.moveForward(var);
+				}else{
+					controller.moveBackward(var);
+				}
+				clock.pause(ACTION_MS);
+				break;
+			}
+			case TURN:
+				switch(((Turn) root).direction){
+				case RIGHT:
 					controller.turnRight();
-				}else if("left".equals(direction)){
+					break;
+				case LEFT:
 					controller.turnLeft();
-				}else if("around".equals(direction)){
+					break;
+				case AROUND:
 					controller.trunAround();
+					break;
 				}
-				sleep(100);
-			}else if("take".equals(root.getValue().text)){
-				String thing = root.firstChild().getValue().text;
-				controller.pickUp(thing);
-				sleep(100);
-			}else if("drop".equals(root.getValue().text)){
-				String thing = root.firstChild().getValue().text;
-				controller.dropPiece(thing);
-				sleep(100);
-			}else if("stop".equals(root.getValue().text)){
+				clock.pause(ACTION_MS);
+				break;
+			case TAKE:
+				controller.pickUp(((Take) root).thing);
+				clock.pause(ACTION_MS);
+				break;
+			case DROP:
+				controller.dropPiece(((Drop) root).thing);
+				clock.pause(ACTION_MS);
+				break;
+			case STOP:
 				//Stop interpreting; the program is finished.
 				stopProgram();
+				break;
+			default:
+				break;
 			}
 		}
 	}
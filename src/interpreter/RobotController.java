@@ -4,7 +4,6 @@
 package interpreter;
 
 import java.util.ArrayList;
-import java.util.Stack;
 
 import examples.Block;
 
@@ -18,8 +17,6 @@ import boardGame.Piece;
  * @version Apr 10, 2012
  */
 public class RobotController {
-	private static final int ROWS = 12;
-	private static final int COLUMNS = 15;
 	private Board board;
 
 	RobotController(Board board){
@@ -44,34 +41,20 @@ public class RobotController {
 	 * @return integer distance to whatever it is that the robot is seeing
 	 */
 	public int getDistance(){
-		Direction d = RobotPiece.getInstance().getDirection();
 		int row = RobotPiece.getInstance().getRow();
 		int col = RobotPiece.getInstance().getColumn();
+		int distance = distanceInFacingDirection(null);
+		if(distance > 0){return distance;}
 
-		if(d.equals(Direction.NORTH)){
-			int r=row-1;
-			int c=col;
-			while((r >= 0)&&(board.getPieces(r, c).size()==0)){r--;}
-			if(r >= 0){ return (row-r);}
+		switch(RobotPiece.getInstance().getDirection()){
+		case NORTH:
 			return row;
-		}else if(d.equals(Direction.SOUTH)){
-			int r=row+1;
-			int c=col;
-			while((r < ROWS)&&(board.getPieces(r, c).size()==0)){r++;}
-			if(r< ROWS){return (r-row);}
-			return (ROWS-row);
-		}else if(d.equals(Direction.WEST)){
-			int r=row;
-			int c=col-1;
-			while((c >= 0)&&(board.getPieces(r, c).size()==0)){c--;}
-			if(c >= 0){return (col-c);}
+		case SOUTH:
+			return board.getRows()-row;
+		case WEST:
 			return col;
-		}else{//facing EAST
-			int r=row;
-			int c=col+1;
-			while((c < COLUMNS)&&(board.getPieces(r, c).size()==0)){c++;}
-			if(c < COLUMNS){return (c-col);}
-			return (COLUMNS-c);
+		default://facing EAST
+			return board.getColumns()-col;
 		}
 	}
 	/**
@@ -83,71 +66,31 @@ public class RobotController {
 	 *         <code>false</code> otherwise
 	 */
 	public boolean findPieceOnTheWay(String thing){
-		Direction d = RobotPiece.getInstance().getDirection();
+		int nearest = distanceInFacingDirection(null);
+		if(nearest < 0){return false;}
+		return distanceInFacingDirection(thing) == nearest;
+	}
+	/**
+	 * Ask the board for the nearest square in the direction the robot is facing
+	 * that holds the given thing
+	 * @param thing name of the thing to look for, or <code>null</code> for any piece
+	 * @return distance to that square, or -1 if there is none
+	 */
+	private int distanceInFacingDirection(String thing){
 		int row = RobotPiece.getInstance().getRow();
 		int col = RobotPiece.getInstance().getColumn();
-
-		if(d.equals(Direction.NORTH)){
-			int r=row-1;
-			int c=col;
-			while(r >= 0){
-				if(board.getPieces(r, c).size()==0){r--;}
-				else{break;}
-			}
-			if(r>=0){
-				Stack<Piece> items = board.getPieces(r, c) ;  
-				while(items.size()>0){
-					Piece p = items.pop();
-					if(p.getName().equals(thing)){return true;}
-				}
-			}
-			return false;
-		}else if(d.equals(Direction.SOUTH)){
-			int r=row+1;
-			int c=col;
-			while(r < COLUMNS){
-				if(board.getPieces(r, c).size()==0){r++;}
-				else{break;}
-			}
-			if(r< COLUMNS){
-				Stack<Piece> items = board.getPieces(r, c) ;  
-				while(items.size()>0){
-					Piece p = items.pop();
-					if(p.getName().equals(thing)){return true;}
-				}
-			}
-			return false;
-		}else if(d.equals(Direction.WEST)){
-			int r=row;
-			int c=col-1;
-			while(c >= 0){
-				if(board.getPieces(r, c).size()==0){c--;}
-				else{break;}
-			}
-			if(c >= 0){
-				Stack<Piece> items = board.getPieces(r, c) ;  
-				while(items.size()>0){
-					Piece p = items.pop();
-					if(p.getName().equals(thing)){return true;}
-				}
-			}
-			return false;
-		}else{//facing EAST
-			int r=row;
-			int c=col+1;
-			while(c < ROWS){
-				if(board.getPieces(r, c).size()==0){c++;}
-				else{break;}
-			}
-			if(c < ROWS){
-				Stack<Piece> items = board.getPieces(r, c) ;  
-				while(items.size()>0){
-					Piece p = items.pop();
-					if(p.getName().equals(thing)){return true;}
-				}
-			}
-			return false;
+		int dRow = 0;
+		int dCol = 0;
+		switch(RobotPiece.getInstance().getDirection()){
+		case NORTH: dRow = -1; break;
+		case SOUTH: dRow = 1; break;
+		case WEST: dCol = -1; break;
+		case EAST: dCol = 1; break;
+		}
+		if(thing == null){
+			return board.distanceToNearestPiece(row, col, dRow, dCol);
 		}
+		return board.distanceToNearestPiece(row, col, dRow, dCol, thing);
 	}
 	/**
 	 * Check whether the Robot is holding the specific thing
@@ -191,7 +134,7 @@ public class RobotController {
 			break;
 		case EAST:
 			posNewY = posOldY + steps;
-			if(posNewY >= COLUMNS){posNewY = COLUMNS-1;}
+			if(posNewY >= board.getColumns()){posNewY = board.getColumns()-1;}
 			while(y<posNewY){
 				y += 1;
 				p = this.board.getPiece(x, y);
@@ -201,7 +144,7 @@ public class RobotController {
 			break;
 		case SOUTH:
 			posNewX = posOldX + steps;
-			if(posNewX >= ROWS){posNewX = ROWS-1;}
+			if(posNewX >= board.getRows()){posNewX = board.getRows()-1;}
 			while(x<posNewX){
 				x += 1;
 				p = this.board.getPiece(x, y);
@@ -312,14 +255,10 @@ public class RobotController {
 	 * @param s  name of the thing robot is expected to take
 	 */
 	public void pickUp(String s){
-		Stack<Piece> items = this.board.getPieces(getRobotRow(), getRobotCol());
-		while(items.size()>0){
-			Piece p = items.pop();
-			if(s.equals(p.getName())){
-				RobotPiece.getInstance().pickItem(p);
-				this.board.remove(p);
-				break;
-			}
+		Piece p = this.board.topNamed(getRobotRow(), getRobotCol(), s);
+		if(p != null){
+			RobotPiece.getInstance().pickItem(p);
+			this.board.remove(p);
 		}
 	}
 	/**
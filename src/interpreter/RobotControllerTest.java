@@ -0,0 +1,99 @@
+package interpreter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import boardGame.Board;
+import examples.Block;
+import weizhuo.Coin;
+import weizhuo.Direction;
+import weizhuo.RobotPiece;
+
+public class RobotControllerTest {
+
+	private RobotController robotAt(Board board, int row, int column, Direction d) {
+		RobotPiece robot = RobotPiece.getInstance();
+		if (robot.isOnBoard()) {
+			robot.getBoard().remove(robot);
+		}
+		board.place(robot, row, column);
+		robot.setDirection(d);
+		return new RobotController(board);
+	}
+
+	@Test
+	public void testDistanceToEdges() {
+		Board board = new Board(12, 15);
+		RobotController controller = robotAt(board, 3, 4, Direction.SOUTH);
+		assertEquals(12 - 3, controller.getDistance());
+		RobotPiece.getInstance().setDirection(Direction.EAST);
+		assertEquals(15 - 4, controller.getDistance());
+		RobotPiece.getInstance().setDirection(Direction.NORTH);
+		assertEquals(3, controller.getDistance());
+		RobotPiece.getInstance().setDirection(Direction.WEST);
+		assertEquals(4, controller.getDistance());
+	}
+
+	@Test
+	public void testSeeingOnTallBoard() {
+		// rows > columns used to stop the SOUTH scan at the column count
+		Board board = new Board(300, 20);
+		board.place(new Coin("Coin"), 250, 10);
+		RobotController controller = robotAt(board, 5, 10, Direction.SOUTH);
+		assertTrue(controller.findPieceOnTheWay("Coin"));
+		assertEquals(245, controller.getDistance());
+	}
+
+	@Test
+	public void testSeeingOnWideBoard() {
+		// columns > rows used to stop the EAST scan at the row count
+		Board board = new Board(20, 300);
+		board.place(new Block(), 10, 280);
+		RobotController controller = robotAt(board, 10, 2, Direction.EAST);
+		assertTrue(controller.findPieceOnTheWay(new Block().getName()));
+		assertFalse(controller.findPieceOnTheWay("Coin"));
+		assertEquals(278, controller.getDistance());
+	}
+
+	@Test
+	public void testSeeingFollowsRemoval() {
+		Board board = new Board(5, 200);
+		Coin near = new Coin("Coin");
+		board.place(new Coin("Coin"), 2, 190);
+		board.place(near, 2, 64);
+		board.place(new Block(), 2, 63);
+		RobotController controller = robotAt(board, 2, 199, Direction.WEST);
+		assertTrue(controller.findPieceOnTheWay("Coin"));
+		assertEquals(9, controller.getDistance());
+		board.remove(board.getPiece(2, 190));
+		assertEquals(135, controller.getDistance());
+		assertTrue(controller.findPieceOnTheWay("Coin"));
+		board.remove(near);
+		assertFalse(controller.findPieceOnTheWay("Coin"));
+		assertEquals(136, controller.getDistance());
+	}
+
+	@Test
+	public void testLargeBoard() {
+		Board board = new Board(2000, 2000);
+		board.place(new Coin("Coin"), 3, 1500);
+		RobotController controller = robotAt(board, 1999, 1500, Direction.NORTH);
+		assertTrue(controller.findPieceOnTheWay("Coin"));
+		assertEquals(1996, controller.getDistance());
+		RobotPiece.getInstance().setDirection(Direction.WEST);
+		assertEquals(1500, controller.getDistance());
+	}
+
+	@Test
+	public void testSparseBoard() {
+		Board board = new Board(100000, 100000);
+		assertTrue(board.isSparse());
+		board.place(new Coin("Coin"), 99000, 42);
+		RobotController controller = robotAt(board, 12, 42, Direction.SOUTH);
+		assertTrue(controller.findPieceOnTheWay("Coin"));
+		assertEquals(98988, controller.getDistance());
+		RobotPiece.getInstance().setDirection(Direction.EAST);
+		assertEquals(100000 - 42, controller.getDistance());
+	}
+}
@@ -14,7 +14,10 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -23,17 +26,22 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSlider;
 import javax.swing.JTextArea;
+import javax.swing.SwingWorker;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.Document;
 
+import ast.Program;
+import ast.ProgramImage;
 import examples.Block;
 
-import parser.Parser;
+import parser.Diagnostic;
+import parser.ParseCache;
 
-import tokenizer.Token;
-import tree.Tree;
 import weizhuo.Coin;
 import weizhuo.Diamond;
 import weizhuo.Direction;
@@ -47,11 +55,17 @@ import weizhuo.Tazer;
  */
 public class RobotGui extends JFrame {
 	private static final long serialVersionUID = 1L;
-	private static final int ROWS = 12;
-    private static final int COLUMNS = 15;
+	private static final int ROWS = Math.max(1, Integer.getInteger("robot.rows", 12));
+    private static final int COLUMNS = Math.max(1, Integer.getInteger("robot.columns", 15));
+
+    private static final int[] RATES = { 1, 2, 10, 100, SimulationClock.UNBOUNDED };
+    private static final String[] RATE_LABELS = { "1x", "2x", "10x", "100x", "Max" };
+    private static final int PARSE_CACHE_SIZE = 16;
 
     private Interpreter interpreter;
     private Board board;
+    private SimulationClock clock;
+    private final ParseCache parseCache = new ParseCache(PARSE_CACHE_SIZE, ForkJoinPool.commonPool());
     public Piece robot;
 	public Piece[] coins;
 	public Piece[] diamonds;
@@ -68,6 +82,7 @@ public class RobotGui extends JFrame {
     private JButton runButton = new JButton("Run");
     private JButton pauseButton = new JButton("Pause");
     private JButton stopButton = new JButton("Stop"); 
+    private JSlider speedSlider = new JSlider(0, RATES.length - 1, 0);
     
     /**
      * Creates the GUI for a robot, and turns control over to the GUI.
@@ -90,11 +105,14 @@ public class RobotGui extends JFrame {
     
     /**
      * Creates the GUI for the Robot language, but does not
-     * attach listeners to the buttons.
+     * attach listeners to the buttons. The board size can be changed
+     * with the system properties <code>robot.rows</code> and
+     * <code>robot.columns</code>.
      */
     private void createGui() {
     	
         board = new Board(ROWS, COLUMNS);
+        clock = new SimulationClock(board);
         Container pane = getContentPane();
         JPanel display = board.getJPanel();
         pane.add(display, BorderLayout.CENTER);
@@ -107,12 +125,37 @@ public class RobotGui extends JFrame {
         controlPanel.add(runButton);
         controlPanel.add(pauseButton);
         controlPanel.add(stopButton);
+        controlPanel.add(new JLabel("   Speed"));
+        controlPanel.add(createSpeedSlider());
         pack();
         setSize(1000, 800);
         setLocationRelativeTo(null);
         setVisible(true);
     }
     
+    /**
+     * Sets up the slider that chooses how fast the simulation runs:
+     * real time, a multiple of real time, or as fast as possible.
+     */
+    private JSlider createSpeedSlider() {
+        Hashtable<Integer, JLabel> labels = new Hashtable<Integer, JLabel>();
+        for (int i = 0; i < RATES.length; i++) {
+            labels.put(i, new JLabel(RATE_LABELS[i]));
+        }
+        speedSlider.setLabelTable(labels);
+        speedSlider.setPaintLabels(true);
+        speedSlider.setMajorTickSpacing(1);
+        speedSlider.setPaintTicks(true);
+        speedSlider.setSnapToTicks(true);
+        speedSlider.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                clock.setRate(RATES[speedSlider.getValue()]);
+            }
+        });
+        return speedSlider;
+    }
+    
     /**
      * Attaches listeners to each of the buttons.
      */
@@ -175,7 +218,7 @@ public class RobotGui extends JFrame {
     private void load() {
         JFileChooser chooser = new JFileChooser();
         BufferedReader reader;
-        String program = "";
+        StringBuilder program = new StringBuilder();
         
         chooser.setDialogTitle("Load which file?");
         int result = chooser.showOpenDialog(this);
@@ -187,14 +230,51 @@ public class RobotGui extends JFrame {
                 reader = new BufferedReader(new FileReader(fileName));
                 String line = reader.readLine();
                 while (line != null) {
-                    program += line + "\n";
+                    program.append(line).append('\n');
                     line = reader.readLine();
                 }
                 reader.close();
+                new ImageLoader(file, program.toString()).execute();
             }
             catch (IOException e) { /* empty */ }
         }
-        programArea.setText(program);
+        programArea.setText(program.toString());
+    }
+
+    /**
+     * Primes the parse cache, off the event thread, with the program in
+     * the image beside a loaded file, if it matches the text; otherwise
+     * parses the text and, if it has no errors, writes a fresh image for
+     * next time. If the program is run before this finishes, it is simply
+     * parsed as usual.
+     */
+    private class ImageLoader extends SwingWorker<Void, Void> {
+        private final File file;
+        private final String programText;
+
+        ImageLoader(File file, String programText) {
+            this.file = file;
+            this.programText = programText;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            File image = ProgramImage.imageFile(file);
+            Program program = ProgramImage.read(image, programText);
+            if (program != null) {
+                parseCache.put(programText, program);
+                return null;
+            }
+            List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+            program = parseCache.parse(programText, diagnostics);
+            if (program != null && diagnostics.isEmpty()) {
+                try {
+                    ProgramImage.write(image, programText, program);
+                }
+                catch (IOException e) { /* the image is only a shortcut */ }
+            }
+            return null;
+        }
     }
     
     private void save() {
@@ -235,21 +315,41 @@ public class RobotGui extends JFrame {
     
     private void startProgram() {
         String programText = programArea.getText();
-        Parser parser = new Parser(programText);
-        try {
-            if (parser.program()) {
-                Tree<Token> program = parser.getParseTree();
-                interpreter = new Interpreter(program, board);
-                interpreter.start();
-                enableButtons("Pause Stop");
-            }
-            else {
-                JOptionPane.showMessageDialog(this, "Parsing error.");
+        List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+        Program program = parseCache.parse(programText, diagnostics);
+        if (!diagnostics.isEmpty()) {
+            JOptionPane.showMessageDialog(this, describe(programText, diagnostics));
+        }
+        else if (program != null) {
+            interpreter = new Interpreter(program, board, clock);
+            interpreter.start();
+            enableButtons("Pause Stop");
+        }
+        else {
+            JOptionPane.showMessageDialog(this, "Parsing error.");
+        }
+    }
+
+    /**
+     * Lists the first few syntax errors in the program, with the line
+     * each is on.
+     */
+    private static String describe(String programText, List<Diagnostic> diagnostics) {
+        final int ERRORS_TO_DISPLAY = 10;
+        StringBuilder message = new StringBuilder();
+        int line = 1;
+        int position = 0;
+        for (int i = 0; i < diagnostics.size() && i < ERRORS_TO_DISPLAY; i++) {
+            Diagnostic diagnostic = diagnostics.get(i);
+            for (; position < diagnostic.start; position++) {
+                if (programText.charAt(position) == '\n') line++;
             }
+            message.append("Line ").append(line).append(": ").append(diagnostic.message).append('\n');
         }
-        catch (RuntimeException e) {
-            JOptionPane.showMessageDialog(this, e.getMessage());
+        if (diagnostics.size() > ERRORS_TO_DISPLAY) {
+            message.append("... and ").append(diagnostics.size() - ERRORS_TO_DISPLAY).append(" more");
         }
+        return message.toString();
     }
 
     private void pause() {
@@ -294,58 +394,40 @@ public class RobotGui extends JFrame {
     }
     
 	/**
-	 * Creates pieces and puts it on the dock.
+	 * Creates pieces and puts it on the dock. The layout is random unless
+	 * the system property <code>robot.seed</code> is set, in which case
+	 * every Initialize produces the same world.
 	 * @author weizhuowu
 	 */
 	protected void createNewPiece() {
 
 		robot = RobotPiece.getInstance();
-		coins = new Coin[4];
-		diamonds = new Diamond[4];
-		oilCans = new OilCan[4];
-		tazers = new Tazer[4];
-		blocks = new Block[4];
-
-		for(int i=0; i<4; i++){
-			coins[i] = new Coin("Coin");
-			placePieceOnBoard(coins[i]);
-//			board.place(coins[i], i, 0);
-			diamonds[i] = new Diamond("Diamond");
-			placePieceOnBoard(diamonds[i]);
-//			board.place(diamonds[i], i, 1);
-			oilCans[i] = new OilCan("OilCan");
-			placePieceOnBoard(oilCans[i]);
-//			board.place(oilCans[i], i, 2);
-			tazers[i] = new Tazer("Tazer");
-			placePieceOnBoard(tazers[i]);
-//			board.place(tazers[i], i, 3);
-			blocks[i] = new Block();
-			placePieceOnBoard(blocks[i]);
-//			board.place(blocks[i], i, 4);
-		}
+		Long seed = Long.getLong("robot.seed");
+		WorldGenerator generator = new WorldGenerator(ROWS, COLUMNS,
+				seed != null ? seed.longValue() : System.nanoTime());
+		ArrayList<Piece> pieces = generator.populate(board, ROWS/2, COLUMNS/2);
+		coins = piecesOfType(pieces, Coin.class);
+		diamonds = piecesOfType(pieces, Diamond.class);
+		oilCans = piecesOfType(pieces, OilCan.class);
+		tazers = piecesOfType(pieces, Tazer.class);
+		blocks = piecesOfType(pieces, Block.class);
 
 		board.place(RobotPiece.getInstance(), ROWS/2, COLUMNS/2);
 		RobotPiece.getInstance().setDirection(Direction.NORTH);
 	}
 
 	/**
-	 * Moves a Piece to the board randomly.
+	 * Selects the pieces of the given type.
 	 * @author weizhuowu
 	 */
-	private void placePieceOnBoard(Piece piece) {
-
-		Random random = new Random();
-		int row = random.nextInt(ROWS);
-		int column = random.nextInt(COLUMNS);
-		if(board.getPiece(row, column) != null){
-			Piece oldPiece = board.getPiece(row, column);
-			while((oldPiece instanceof Block)){
-				row = random.nextInt(ROWS);
-				column = random.nextInt(COLUMNS);
-				oldPiece = board.getPiece(row, column);
+	private Piece[] piecesOfType(ArrayList<Piece> pieces, Class<? extends Piece> type) {
+		ArrayList<Piece> selected = new ArrayList<Piece>();
+		for (Piece piece : pieces) {
+			if (type.isInstance(piece)) {
+				selected.add(piece);
 			}
 		}
-		board.place(piece, row, column);
+		return selected.toArray(new Piece[selected.size()]);
 	}
 	
 	
@@ -0,0 +1,122 @@
+package interpreter;
+
+import boardGame.Board;
+
+/**
+ * Paces the interpreter. Each robot action takes a fixed amount of
+ * simulated time; the clock turns that into real time according to its
+ * rate, which may be real time, a multiple of real time, or unbounded.
+ * <p>
+ * When the clock is attached to a <code>Board</code>, it also keeps the
+ * board's animation in step: pieces move proportionally faster at higher
+ * rates (too fast to animate at all beyond a point), and in unbounded
+ * mode animation is turned off and the board is only repainted a few
+ * times a second, so the display samples a run it cannot keep up with.
+ */
+public class SimulationClock {
+	/** The rate of an unbounded clock. */
+	public static final int UNBOUNDED = 0;
+	/** Real-time milliseconds between repaints of an unbounded run. */
+	static final int FRAME_INTERVAL_MS = 40;
+	private static final long MAX_LAG_NANOS = 250 * 1000000L;
+
+	private final Board board;
+	private final int baseSpeed;
+	private volatile int rate = 1;
+	private long deadline = System.nanoTime();
+	private long lastFrame = deadline;
+	private volatile long elapsed;
+
+	/**
+	 * Creates a real-time clock that is not attached to any board.
+	 */
+	public SimulationClock() {
+		this(null);
+	}
+
+	/**
+	 * Creates a real-time clock that keeps the animation of the given
+	 * board in step with its rate.
+	 * @param board The board being displayed, or <code>null</code>.
+	 */
+	public SimulationClock(Board board) {
+		this.board = board;
+		baseSpeed = board == null ? 0 : board.getSpeed();
+	}
+
+	/**
+	 * Sets how many times faster than real time the simulation runs.
+	 * @param rate A positive multiplier, or <code>UNBOUNDED</code> to
+	 *             run as fast as possible.
+	 */
+	public void setRate(int rate) {
+		if (rate < 0) {
+			throw new IllegalArgumentException("Illegal rate: " + rate);
+		}
+		this.rate = rate;
+		if (board != null) {
+			board.setAnimated(rate != UNBOUNDED);
+			if (rate != UNBOUNDED) {
+				board.setSpeed(baseSpeed * rate);
+			}
+		}
+	}
+
+	/**
+	 * Returns how many times faster than real time the simulation runs.
+	 * @return The multiplier, or <code>UNBOUNDED</code>.
+	 */
+	public int getRate() {
+		return rate;
+	}
+
+	/**
+	 * Returns the total simulated time that has passed on this clock.
+	 * @return The simulated time, in milliseconds.
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Starts pacing afresh from now, so that time in which the clock was
+	 * not being used, such as before a run or while a run was paused, is
+	 * not made up by rushing the actions that follow. Only the interpreter
+	 * thread should call this, or the thread about to start it.
+	 */
+	public void reset() {
+		deadline = System.nanoTime();
+		lastFrame = deadline;
+	}
+
+	/**
+	 * Lets the given amount of simulated time pass. Only the interpreter
+	 * thread should call this. Time lost to slow actions since the last
+	 * <code>reset</code> is made up by shorter pauses afterwards, though
+	 * never more than a quarter of a second of it.
+	 * @param simulatedMillis The simulated time, in milliseconds.
+	 * @throws InterruptedException If the thread is interrupted.
+	 */
+	public void pause(long simulatedMillis) throws InterruptedException {
+		elapsed += simulatedMillis;
+		int currentRate = rate;
+		long now = System.nanoTime();
+		if (currentRate == UNBOUNDED) {
+			deadline = now;
+			if (now - lastFrame >= FRAME_INTERVAL_MS * 1000000L) {
+				lastFrame = now;
+				if (board != null) {
+					board.getJPanel().repaint();
+				}
+				Thread.sleep(1);  // let the event thread paint the frame
+			}
+			return;
+		}
+		deadline = Math.max(deadline, now - MAX_LAG_NANOS)
+				+ simulatedMillis * 1000000L / currentRate;
+		long wait = deadline - now;
+		if (wait > 0) {
+			Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package interpreter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SimulationClockTest {
+
+	private static long millisToPause(SimulationClock clock, int actions) throws InterruptedException {
+		long start = System.nanoTime();
+		for (int i = 0; i < actions; i++) {
+			clock.pause(Interpreter.ACTION_MS);
+		}
+		return (System.nanoTime() - start) / 1000000L;
+	}
+
+	@Test
+	public void testPacingHoldsAfterIdleGap() throws InterruptedException {
+		SimulationClock clock = new SimulationClock();
+		Thread.sleep(400);  // as if the GUI sat idle before the run
+		clock.reset();
+		assertTrue(millisToPause(clock, 3) >= 280);
+		Thread.sleep(400);  // as if the run were paused
+		clock.reset();
+		assertTrue(millisToPause(clock, 3) >= 280);
+		assertEquals(6 * Interpreter.ACTION_MS, clock.getElapsed());
+	}
+
+	@Test
+	public void testLagWithinRunIsMadeUp() throws InterruptedException {
+		SimulationClock clock = new SimulationClock();
+		clock.reset();
+		clock.pause(Interpreter.ACTION_MS);
+		Thread.sleep(150);  // a slow action
+		assertTrue(millisToPause(clock, 2) < 150);
+	}
+
+	@Test
+	public void testRateMultipliesPace() throws InterruptedException {
+		SimulationClock clock = new SimulationClock();
+		clock.setRate(10);
+		clock.reset();
+		assertTrue(millisToPause(clock, 5) < 250);
+		assertEquals(5 * Interpreter.ACTION_MS, clock.getElapsed());
+	}
+}
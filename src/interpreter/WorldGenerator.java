@@ -0,0 +1,216 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import boardGame.Board;
+import boardGame.Piece;
+
+import examples.Block;
+
+import weizhuo.Coin;
+import weizhuo.Diamond;
+import weizhuo.OilCan;
+import weizhuo.Tazer;
+
+/**
+ * Populates a <code>Board</code> with randomly placed pieces. The
+ * placement depends only on the seed, the board size and the number
+ * of pieces requested, so a world can be reproduced exactly.
+ * <p>
+ * The cells that are not occupied by a <code>Block</code> are kept
+ * in a free list, so choosing a cell for a new piece takes constant
+ * time no matter how crowded the board is.
+ */
+public class WorldGenerator {
+    private final int rows;
+    private final int columns;
+    private final long seed;
+    private Random random;
+    private int[] freeCells;   // cell numbers (row * columns + column) not blocked
+    private int[] slotOfCell;  // index of each cell in freeCells, or -1
+    private int freeCount;
+
+    private int coins = 4;
+    private int diamonds = 4;
+    private int oilCans = 4;
+    private int tazers = 4;
+    private int blocks = 4;
+
+    /**
+     * Creates a generator for a board of the given size.
+     *
+     * @param rows The number of rows on the board.
+     * @param columns The number of columns on the board.
+     * @param seed The seed for the random placement of pieces.
+     */
+    public WorldGenerator(int rows, int columns, long seed) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Illegal board size: "
+                    + rows + " x " + columns);
+        }
+        if ((long) rows * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many cells for a free list: "
+                    + rows + " x " + columns);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * Returns the seed used by this generator.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets how many pieces of each type will be placed by
+     * <code>populate</code>.
+     *
+     * @param coins Number of coins.
+     * @param diamonds Number of diamonds.
+     * @param oilCans Number of oil cans.
+     * @param tazers Number of tazers.
+     * @param blocks Number of blocks.
+     */
+    public void setCounts(int coins, int diamonds, int oilCans, int tazers, int blocks) {
+        if (coins < 0 || diamonds < 0 || oilCans < 0 || tazers < 0 || blocks < 0) {
+            throw new IllegalArgumentException("Piece counts must not be negative");
+        }
+        this.coins = coins;
+        this.diamonds = diamonds;
+        this.oilCans = oilCans;
+        this.tazers = tazers;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Restarts the random sequence and marks every cell as free, so that
+     * the next call of <code>populate</code> produces the same world as
+     * the first one.
+     */
+    public void reset() {
+        random = new Random(seed);
+        int cells = rows * columns;
+        if (freeCells == null) {
+            freeCells = new int[cells];
+            slotOfCell = new int[cells];
+        }
+        for (int i = 0; i < cells; i++) {
+            freeCells[i] = i;
+            slotOfCell[i] = i;
+        }
+        freeCount = cells;
+    }
+
+    /**
+     * Returns the number of cells that are still available for pieces.
+     *
+     * @return The number of free cells.
+     */
+    public int getFreeCount() {
+        return freeCount;
+    }
+
+    /**
+     * Removes the given cell from the free list, so that no piece will
+     * be placed on it. Does nothing if the cell has already been taken.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @throws ArrayIndexOutOfBoundsException If the cell is not on the board.
+     */
+    public void reserve(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new ArrayIndexOutOfBoundsException("[" + row + "][" + column + "]");
+        }
+        int cell = row * columns + column;
+        int slot = slotOfCell[cell];
+        if (slot < 0) return;
+        int last = freeCells[--freeCount];
+        freeCells[slot] = last;
+        slotOfCell[last] = slot;
+        slotOfCell[cell] = -1;
+    }
+
+    /**
+     * Places the given piece on a randomly chosen free cell of the board.
+     * A <code>Block</code> takes its cell out of the free list; any other
+     * piece may share its cell with later pieces, as before.
+     *
+     * @param board The board on which to place the piece.
+     * @param piece The piece to be placed.
+     */
+    public void placeRandomly(Board board, Piece piece) {
+        if (freeCount == 0) {
+            throw new IllegalStateException("No free cell left for " + piece.getName());
+        }
+        int cell = freeCells[random.nextInt(freeCount)];
+        int row = cell / columns;
+        int column = cell % columns;
+        if (piece instanceof Block) {
+            reserve(row, column);
+        }
+        board.place(piece, row, column);
+    }
+
+    /**
+     * Places the configured number of coins, diamonds, oil cans, tazers
+     * and blocks on the given board. The cell at
+     * (<code>robotRow</code>, <code>robotColumn</code>) is kept free of
+     * blocks, so the robot can be placed there afterwards.
+     *
+     * @param board The board to populate.
+     * @param robotRow The row on which the robot will start.
+     * @param robotColumn The column on which the robot will start.
+     * @return The pieces that were placed, in the order they were placed.
+     * @throws ArrayIndexOutOfBoundsException If the robot's cell is not
+     *         on the board.
+     */
+    public ArrayList<Piece> populate(Board board, int robotRow, int robotColumn) {
+        if (board.getRows() != rows || board.getColumns() != columns) {
+            throw new IllegalArgumentException("Board is " + board.getRows() + " x "
+                    + board.getColumns() + ", expected " + rows + " x " + columns);
+        }
+        reset();
+        reserve(robotRow, robotColumn);
+        ArrayList<Piece> pieces = new ArrayList<Piece>();
+        int most = Math.max(Math.max(coins, diamonds),
+                            Math.max(Math.max(oilCans, tazers), blocks));
+        for (int i = 0; i < most; i++) {
+            if (i < coins) pieces.add(new Coin("Coin"));
+            if (i < diamonds) pieces.add(new Diamond("Diamond"));
+            if (i < oilCans) pieces.add(new OilCan("OilCan"));
+            if (i < tazers) pieces.add(new Tazer("Tazer"));
+            if (i < blocks) pieces.add(new Block());
+        }
+        for (Piece piece : pieces) {
+            if (piece instanceof Block) {
+                placeRandomly(board, piece);
+            } else {
+                placeItem(board, piece, robotRow, robotColumn);
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * Places an item (anything but a block) on a random cell that is
+     * either free or the robot's starting cell; items may share the
+     * robot's cell, only blocks are kept away from it.
+     */
+    private void placeItem(Board board, Piece piece, int robotRow, int robotColumn) {
+        int choice = random.nextInt(freeCount + 1);
+        if (choice == freeCount) {
+            board.place(piece, robotRow, robotColumn);
+        } else {
+            int cell = freeCells[choice];
+            board.place(piece, cell / columns, cell % columns);
+        }
+    }
+}
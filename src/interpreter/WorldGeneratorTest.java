@@ -0,0 +1,72 @@
+package interpreter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import boardGame.Board;
+import boardGame.Piece;
+import examples.Block;
+
+public class WorldGeneratorTest {
+
+	@Test
+	public void testSameSeedSameWorld() {
+		ArrayList<Piece> first = new WorldGenerator(12, 15, 42).populate(new Board(12, 15), 6, 7);
+		ArrayList<Piece> second = new WorldGenerator(12, 15, 42).populate(new Board(12, 15), 6, 7);
+		assertEquals(20, first.size());
+		assertEquals(first.size(), second.size());
+		for (int i = 0; i < first.size(); i++) {
+			assertEquals(first.get(i).toString(), second.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testBlocksAvoidEachOtherAndRobot() {
+		Board board = new Board(3, 3);
+		WorldGenerator generator = new WorldGenerator(3, 3, 7);
+		generator.setCounts(0, 0, 0, 0, 8);
+		generator.populate(board, 1, 1);
+		assertEquals(0, generator.getFreeCount());
+		assertTrue(board.isEmpty(1, 1));
+		for (int r = 0; r < 3; r++) {
+			for (int c = 0; c < 3; c++) {
+				if (r != 1 || c != 1) {
+					assertTrue(board.getPiece(r, c) instanceof Block);
+					assertEquals(1, board.getPieces(r, c).size());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testReserveOnLargeBoard() {
+		WorldGenerator generator = new WorldGenerator(1000, 1000, 1);
+		generator.reserve(0, 0);
+		generator.reserve(999, 999);
+		generator.reserve(0, 0);
+		assertEquals(1000 * 1000 - 2, generator.getFreeCount());
+	}
+
+	@Test
+	public void testReserveRejectsCellsOffTheBoard() {
+		WorldGenerator generator = new WorldGenerator(12, 15, 1);
+		int[][] outside = { { 0, 15 }, { 12, 0 }, { -1, 0 }, { 0, -1 } };
+		for (int[] cell : outside) {
+			try {
+				generator.reserve(cell[0], cell[1]);
+				fail();
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+		}
+		assertEquals(12 * 15, generator.getFreeCount());
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testPopulateRejectsRobotOffTheBoard() {
+		new WorldGenerator(12, 15, 1).populate(new Board(12, 15), 0, 15);
+	}
+}
@@ -0,0 +1,36 @@
+package parser;
+
+/**
+ * A syntax error found by the parser: what was wrong, and where. The
+ * place is given as a span of characters in the text that was parsed,
+ * normally the token at which the parser noticed the error.
+ */
+public final class Diagnostic {
+	/** What was wrong. */
+	public final String message;
+	/** Where the span begins: the index of its first character. */
+	public final int start;
+	/** Where the span ends: the index just past its last character. */
+	public final int end;
+
+	/**
+	 * Constructs a diagnostic.
+	 * @param message What was wrong.
+	 * @param start The index of the first character of the span.
+	 * @param end The index just past the last character of the span.
+	 */
+	public Diagnostic(String message, int start, int end) {
+		this.message = message;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Returns a string of the form <code>start-end: message</code>.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return start + "-" + end + ": " + message;
+	}
+}
@@ -0,0 +1,204 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ast.Program;
+import ast.ProgramImage;
+
+/**
+ * Remembers the results of parsing programs, so that a program submitted
+ * again is not tokenized and parsed again. Results are found by a SHA-256
+ * hash of the program's text; the least recently used are forgotten when
+ * the cache is full. Since syntax trees are immutable, one tree may be
+ * handed to any number of callers, on any number of threads.
+ * <p>
+ * Programs are parsed as by <code>Parser.parseProgram(List)</code>, with
+ * the default nesting limit; programs with errors are remembered too,
+ * along with their errors.
+ */
+public final class ParseCache {
+	private final int capacity;
+	private final ForkJoinPool pool;
+	private final Map<Key, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * The SHA-256 hash of a program's text.
+	 */
+	private static final class Key {
+		private final byte[] digest;
+		private final int hash;
+
+		Key(byte[] digest) {
+			this.digest = digest;
+			hash = Arrays.hashCode(digest);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(digest, ((Key) o).digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The result of parsing one program.
+	 */
+	private static final class Entry {
+		final Program program;
+		final List<Diagnostic> diagnostics;
+
+		Entry(Program program, List<Diagnostic> diagnostics) {
+			this.program = program;
+			this.diagnostics = diagnostics;
+		}
+	}
+
+	/**
+	 * Creates an empty cache.
+	 * @param capacity The most programs to remember; at least 1.
+	 */
+	public ParseCache(int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * Creates an empty cache whose parsers parse the procedures of large
+	 * programs on the given pool.
+	 * @param capacity The most programs to remember; at least 1.
+	 * @param pool The pool, or <code>null</code> to parse on the calling
+	 *        thread.
+	 * @see Parser#setPool(ForkJoinPool)
+	 */
+	public ParseCache(int capacity, ForkJoinPool pool) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		this.pool = pool;
+		entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				if (size() <= ParseCache.this.capacity) return false;
+				evictions.incrementAndGet();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Parses a &lt;program&gt;, or recalls the result of parsing the same
+	 * text before. Any syntax errors are added to the given list.
+	 * @param text The text of the program.
+	 * @param diagnostics The list to which errors are added.
+	 * @return The program, possibly partial if there were errors, or
+	 *         <code>null</code> if the text does not begin with "program".
+	 * @see Parser#parseProgram(List)
+	 */
+	public Program parse(String text, List<Diagnostic> diagnostics) {
+		Key key = new Key(ProgramImage.hash(text));
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			List<Diagnostic> found = new ArrayList<Diagnostic>();
+			Parser parser = new Parser(text);
+			parser.setPool(pool);
+			Program program = parser.parseProgram(found);
+			entry = new Entry(program, found.isEmpty() ? Collections.<Diagnostic>emptyList()
+			                                           : Collections.unmodifiableList(found));
+			synchronized (entries) {
+				entries.put(key, entry);
+			}
+		}
+		diagnostics.addAll(entry.diagnostics);
+		return entry.program;
+	}
+
+	/**
+	 * Remembers a program obtained without parsing, such as one read from
+	 * a <code>ProgramImage</code>, as the error-free result of parsing the
+	 * given text. It counts as neither a hit nor a miss.
+	 * @param text The text of the program.
+	 * @param program The program that text parses to.
+	 */
+	public void put(String text, Program program) {
+		Key key = new Key(ProgramImage.hash(text));
+		synchronized (entries) {
+			entries.put(key, new Entry(program, Collections.<Diagnostic>emptyList()));
+		}
+	}
+
+	/**
+	 * Returns the number of programs found in the cache.
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of programs that had to be parsed.
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of programs forgotten to make room for others.
+	 * @return The number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns the number of programs remembered.
+	 * @return The number of entries in the cache.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Forgets every program; the counts of hits, misses and evictions
+	 * are kept.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the counts of hits, misses and evictions, and the size.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ParseCache[hits=" + getHits() + ", misses=" + getMisses()
+				+ ", evictions=" + getEvictions() + ", size=" + size() + "]";
+	}
+}
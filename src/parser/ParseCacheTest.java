@@ -0,0 +1,55 @@
+package parser;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ast.Program;
+
+public class ParseCacheTest {
+
+	@Test
+	public void testSameTextSameTree() {
+		ParseCache cache = new ParseCache(4);
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program first = cache.parse("program { forward 1; }", diagnostics);
+		Program second = cache.parse(new String("program { forward 1; }"), diagnostics);
+		assertSame(first, second);
+		assertTrue(diagnostics.isEmpty());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertNotSame(first, cache.parse("program { forward 2; }", diagnostics));
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testErrorsAreRemembered() {
+		ParseCache cache = new ParseCache(4);
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		cache.parse("program { forward ; }", diagnostics);
+		assertEquals(1, diagnostics.size());
+		diagnostics.clear();
+		cache.parse("program { forward ; }", diagnostics);
+		assertEquals(1, diagnostics.size());
+		assertEquals(1, cache.getHits());
+		assertNull(cache.parse("forward 1;", diagnostics));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		ParseCache cache = new ParseCache(2);
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program a = cache.parse("program { forward 1; }", diagnostics);
+		cache.parse("program { forward 2; }", diagnostics);
+		cache.parse("program { forward 1; }", diagnostics);
+		cache.parse("program { forward 3; }", diagnostics);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.size());
+		assertSame(a, cache.parse("program { forward 1; }", diagnostics));
+		cache.parse("program { forward 2; }", diagnostics);
+		assertEquals(4, cache.getMisses());
+	}
+}
@@ -1,7 +1,38 @@
 package parser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+import ast.BinOp;
+import ast.Block;
+import ast.Call;
+import ast.Compare;
+import ast.Condition;
+import ast.Def;
+import ast.Drop;
+import ast.Expression;
+import ast.Holding;
+import ast.If;
+import ast.Literal;
+import ast.Move;
+import ast.Node;
+import ast.Not;
+import ast.Program;
+import ast.Repeat;
+import ast.Sensor;
+import ast.Seeing;
+import ast.Set;
+import ast.Statement;
+import ast.Stop;
+import ast.Take;
+import ast.Turn;
+import ast.Unary;
+import ast.Var;
+import ast.While;
 import tokenizer.Token;
 import tokenizer.TokenType;
 import tokenizer.Tokenizer;
@@ -27,14 +58,48 @@ import tree.Tree;
  * @version February 21, 2012
  */
 public class Parser {
+	/**
+	 * The default limit on how deeply blocks, parenthesized expressions
+	 * and "not"s may be nested; well within what the parser, and the code
+	 * that walks the trees it builds, can handle on a thread with an
+	 * ordinary stack.
+	 */
+	public static final int DEFAULT_MAX_NESTING = 200;
+	private static final int ADD_PRECEDENCE = 1;
+	private static final int MULTIPLY_PRECEDENCE = 2;
+	/** The fewest procedures worth parsing in parallel. */
+	private static final int PARALLEL_THRESHOLD = 256;
+	/** How many procedures one task parses, at most. */
+	private static final int PROCEDURES_PER_TASK = 64;
+	private final String text;
 	private Tokenizer tokenizer = null;
 	private Stack<Tree<Token>> stack = new Stack<Tree<Token>>();
+	private List<Diagnostic> diagnostics = null;  // not null while recovering from errors
+	private int maxNesting = DEFAULT_MAX_NESTING;
+	private int nesting = 0;
+	private ForkJoinPool pool = null;  // not null to parse procedures in parallel
+
+	/**
+	 * Thrown, while recovering from errors, to abandon the command or
+	 * procedure in which an error was found, once the error has been
+	 * recorded. It carries no stack trace, so it is cheap to throw.
+	 */
+	private static final class SyntaxError extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+	private static final SyntaxError SYNTAX_ERROR = new SyntaxError();
 
 	/**
 	 * Constructs a Parser for the given string.
 	 * @param text The string to be parsed.
 	 */
 	public Parser(String text) {
+		this.text = text;
 		tokenizer = new Tokenizer(text);
 	}
 
@@ -46,6 +111,52 @@ public class Parser {
 		return tokenizer;
 	}
 
+	/**
+	 * Sets how deeply blocks, parenthesized expressions and "not"s may be
+	 * nested. Anything nested deeper is a syntax error, rather than a
+	 * <code>StackOverflowError</code> here or in code that walks the tree.
+	 * @param maxNesting The greatest depth allowed; at least 1.
+	 */
+	public void setMaxNesting(int maxNesting) {
+		if (maxNesting < 1) {
+			throw new IllegalArgumentException("Illegal nesting limit: " + maxNesting);
+		}
+		this.maxNesting = maxNesting;
+	}
+
+	/**
+	 * Returns how deeply blocks, parenthesized expressions and "not"s
+	 * may be nested.
+	 * @return The greatest depth allowed.
+	 */
+	public int getMaxNesting() {
+		return maxNesting;
+	}
+
+	/**
+	 * Sets the pool on which the procedures of large programs are parsed,
+	 * each task parsing a run of them; or, if <code>null</code>, parses
+	 * everything on the calling thread, which is the default. The
+	 * resulting tree and errors are the same either way: a program the
+	 * parallel pass cannot handle exactly (because it has errors, or
+	 * strings or comments) is parsed on the calling thread instead.
+	 * Normally the pool is <code>ForkJoinPool.commonPool()</code>; the
+	 * parser never shuts it down.
+	 * @param pool The pool, or <code>null</code>.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns the pool on which procedures are parsed.
+	 * @return The pool, or <code>null</code> if they are parsed on the
+	 *         calling thread.
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
 	/**
 	 * Tries to parse a &lt;variable&gt; (which is just a &lt;name&gt;).
 	 * <pre>&lt;variable&gt; ::= &lt;name&gt;</pre>
@@ -69,7 +180,7 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;command&gt; is recognized.
 	 */
 	public boolean command(){
-		return thought()||action();
+		return push(parseCommand());
 	}
 	/**
 	 * Tries to recognize a &lt;program&gt;.
@@ -77,18 +188,7 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;program&gt; is recognized.
 	 */
 	public boolean program(){
-		if(keyword("program")){
-			if(!block()){
-				error("Missing block for program");
-			}else{
-				makeTree();
-			}
-			while(procedure()){
-				makeTree();
-			}
-			return true;
-		}
-		return false;
+		return push(parseProgram());
 	}
 	/**
 	 * Tries to recognize a &lt;thought&gt;.
@@ -99,75 +199,11 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;thought&gt; is recognized.
 	 */
 	public boolean thought(){
-		if(keyword("set")){
-			if(!variable()){
-				error("Missing variable after set!");
-			}else{
-				makeTree();
-				if(!expression()){
-					error("Missing expression to set variable");
-				}else{
-					makeTree();
-				}
-			}
-			if(!matchButDontKeep(";")){error("Missing \';\' after expression");}
-			return true;
-		}else if(keyword("repeat")){
-			if(!expression()){
-				error("Missing expression after repeat");
-			}else{
-				makeTree();
-				if(!block()){
-					error("Missing block after");
-				}else{
-					makeTree();
-				}
-			}
-			return true;
-		}else if(keyword("while")){
-			if(!condition()){
-				error("Mission while condition");
-			}else{
-				makeTree();
-				if(!block()){
-					error("No block for while");
-				}else{
-					makeTree();
-				}
-			}
-			return true;
-		}else if(keyword("if")){
-			if(!condition()){
-				error("Missing conditions for if statement");
-			}else{
-				makeTree();
-				if(!block()){
-					error("No block for if statement");
-				}else{
-					makeTree();
-				}
-			}
-			if(matchButDontKeep("else")){
-				if(!block()){
-					error("Missing block after else statement");
-				}else{
-					makeTree();
-				}
-			}
-			return true;
-		}else if(keyword("call")){
-			if(!name()){
-				error("Missing name to call");
-			}else{
-				makeTree();
-			}
-			while(expression()){
-				makeTree();
-			}
-			if(!matchButDontKeep(";")){error("Missing \';\' at the end of call statement");}
-			return true;
-		}
-		return false;
+		if(!tokenizer.hasNext()) return false;
+		Token t = tokenizer.next();
+		Statement thought = parseThought(t);
+		if(thought == null) tokenizer.backUp();
+		return push(thought);
 	}
 
 	/**
@@ -180,43 +216,11 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;action&gt; is recognized.
 	 */
 	public boolean action(){
-		if(move()){
-			if(!expression()){
-				error("Missing expression after move statement");
-			}else{
-				makeTree();
-				if(!matchButDontKeep(";")){error("Missing \';\' at the end of action statement");}
-			}
-			return true;
-		}else if(keyword("turn")){
-			if(!direction()){
-				error("Missing direction after keyword turn");
-			}else{
-				makeTree();
-				if(!matchButDontKeep(";")){error("Missing \';\' at the end of action statement");}
-			}
-			return true;
-		}else if(keyword("take")){
-			if(!thing()){
-				error("Missing the thing to take");
-			}else{
-				makeTree();
-				if(!matchButDontKeep(";")){error("Missing \';\' at the end of action statement");}
-			}
-			return true;
-		}else if(keyword("drop")){
-			if(!thing()){
-				error("Missing the thing to drop");
-			}else{
-				makeTree();
-				if(!matchButDontKeep(";")){error("Missing \';\' at the end of action statement");}
-			}
-			return true;
-		}else if(keyword("stop")){
-			if(!matchButDontKeep(";")){error("Missing \';\' at the end of action statement");}
-			return true;
-		}
-		return false;
+		if(!tokenizer.hasNext()) return false;
+		Token t = tokenizer.next();
+		Statement action = parseAction(t);
+		if(action == null) tokenizer.backUp();
+		return push(action);
 	}
 	/**
 	 * Tries to recognize a &lt;move&gt;.
@@ -241,19 +245,7 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;block&gt; is recognized.
 	 */
 	public boolean block(){
-		if(matchButDontKeep("{")){
-			Token blockToken = new Token(TokenType.NAME, "block");
-			Tree<Token> t = new Tree<Token>(blockToken);
-			stack.push(t);
-			while(command()){
-				makeTree();
-			}
-			if(!matchButDontKeep("}")){
-				error("Unclosed parenthetical expression");
-			}
-			return true;
-		}
-		return false;
+		return push(parseBlock());
 	}
 
 	/**
@@ -265,36 +257,7 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;block&gt; is recognized.
 	 */
 	public boolean condition(){
-		if(expression()){
-			if(!comparator()){
-				error("Missing comparator in condition expression");
-			}else{
-				swapTopTwoElementsOfStack();
-				makeTree();
-				if(!expression()){
-					error("Missing expression after comdition comparator");
-				}else{
-					makeTree();
-				}
-			}
-			return true;
-		}else if(keyword("seeing")||keyword("holding")){
-			if(!thing()){
-				error("Missing thing after seeing/holding");
-			}else{
-				makeTree();
-			}
-			return true;
-		}else if(keyword("not")){
-			if(!condition()){
-				error("Missing condition after not");
-			}else{
-				makeTree();
-			}
-			return true;
-		}else{
-			return false;
-		}
+		return push(parseCondition());
 	}
 
 	/**
@@ -312,57 +275,19 @@ public class Parser {
 	 * @return <code>true</code> if a &lt;procedure&gt; is recognized.
 	 */
 	public boolean procedure(){
-		if(keyword("def")){
-			Token headerToken = new Token(TokenType.NAME, "header");
-			Tree<Token> headerTree = new Tree<Token>(headerToken);
-			stack.push(headerTree);
-			if(!name()){
-				error("Missing name after \"def\"");
-			}else{
-				makeTree();
-			}
-			while(variable()){
-                makeTree();
-            }
-			makeTree();//header becomes child of def
-			if(!block()){
-				error("Unblocked procedure");
-			}else{
-				makeTree();
-			}
-			return true;
-		}
-		return false;
+		return push(parseProcedure());
 	}
 
 
 	/**
 	 * Tries to parse an &lt;expression&gt;.
-	 * <pre>&lt;expression&gt; ::= [ &lt;add_operator&gt; ] &lt;term&gt; { &lt;add_operator&gt; &lt;expression&gt; }</pre>
+	 * <pre>&lt;expression&gt; ::= [ &lt;add_operator&gt; ] &lt;term&gt; { &lt;add_operator&gt; &lt;term&gt; }</pre>
 	 * A <code>RuntimeException</code> will be thrown if an &lt;add_operator&gt;
-	 * is present after the first &lt;term&gt; but not followed by a valid &lt;expression&gt;.
+	 * is present after the first &lt;term&gt; but not followed by a valid &lt;term&gt;.
 	 * @return <code>true</code> if an &lt;expression&gt; is parsed.
-	 */    
+	 */
 	public boolean expression() {
-		if (addOperator()) {
-			if (term()) {
-				makeTree();
-			}
-			else error("Unary operator not followed by term.");
-		} else {
-			if (!term()) return false;
-		}
-		while (addOperator()) {
-			swapTopTwoElementsOfStack();
-			makeTree();
-			if (term()) {
-				makeTree();
-			}
-			else {
-				error("Error in expression after '+' or '-'");
-			}
-		}
-		return true;
+		return push(parseExpression());
 	}
 
 	/**
@@ -373,18 +298,7 @@ public class Parser {
 	 * @return <code>true</code> if a term is parsed.
 	 */
 	public boolean term() {
-		if (!factor()) return false;
-		while (multiplyOperator()) {
-			swapTopTwoElementsOfStack();
-			makeTree();
-			if (factor()) {
-				makeTree();
-			}
-			else {
-				error("No term after '*' or '/'");
-			}
-		}
-		return true;
+		return push(parseTerm());
 	}
 
 
@@ -402,22 +316,553 @@ public class Parser {
 	 * @return <code>true</code> if a factor is parsed.
 	 */
 	public boolean factor() {
-		if (variable()) {
-			return true;
+		return push(parseFactor());
+	}
+
+	/**
+	 * Pushes the <code>Tree&lt;Token&gt;</code> form of the given node, if
+	 * there is one, onto the stack.
+	 * @return <code>true</code> if the node is not <code>null</code>.
+	 */
+	private boolean push(Node node) {
+		if (node == null) return false;
+		stack.push(node.toTree());
+		return true;
+	}
+
+	//----- Typed syntax trees
+
+	/**
+	 * Parses a &lt;program&gt; and returns its syntax tree.
+	 * <pre>&lt;program&gt; ::= "program" &lt;block&gt; {&lt;procedure&gt;}</pre>
+	 * A <code>RuntimeException</code> will be thrown if the program is
+	 * present but malformed.
+	 * @return The program, or <code>null</code> (consuming nothing) if
+	 *         the next token is not "program".
+	 */
+	public Program parseProgram() {
+		if (take(TokenType.KEYWORD, "program") == null) return null;
+		return parseProgramBody();
+	}
+
+	/**
+	 * Parses a &lt;program&gt;, recovering from syntax errors: each error
+	 * is added to the given list, the command or procedure containing it
+	 * is skipped (up to the next ";", or past the block it is in the
+	 * header of), and parsing goes on. So one parse finds every error,
+	 * and returns a tree of all that could be parsed.
+	 * @param diagnostics The list to which errors are added.
+	 * @return The program, or <code>null</code> (consuming nothing) if
+	 *         the next token is not "program".
+	 */
+	public Program parseProgram(List<Diagnostic> diagnostics) {
+		this.diagnostics = diagnostics;
+		try {
+			if (take(TokenType.KEYWORD, "program") == null) {
+				report("Missing \"program\"");
+				return null;
+			}
+			return parseProgramBody();
+		} finally {
+			this.diagnostics = null;
+		}
+	}
+
+	/**
+	 * Parses the rest of a &lt;program&gt;, after "program".
+	 */
+	private Program parseProgramBody() {
+		Block main = parseBlock();
+		if (main == null) {
+			report("Missing block for program");
+			main = new Block(new ArrayList<Statement>());
 		}
-		if (isNumber()) {
-			return true;
+		List<Def> procedures = parseProceduresInParallel();
+		if (procedures != null) {
+			tokenizer.skipRest();
+			return new Program(main, procedures);
 		}
-		if (keyword("row") || keyword("column") || keyword("distance")) {
-			return true;
+		procedures = new ArrayList<Def>();
+		while (tokenizer.hasNext()) {
+			try {
+				Def procedure = parseProcedure();
+				if (procedure != null) {
+					procedures.add(procedure);
+					continue;
+				}
+				if (diagnostics == null) break;
+				error("Expected a procedure definition");
+			} catch (SyntaxError e) {
+				while (tokenizer.hasNext() && !nextIs("def")) {
+					tokenizer.next();
+				}
+			}
 		}
-		if (matchButDontKeep("(")) {
-			if (!expression()) error("Error in parenthesized expression");
-			if (!matchButDontKeep(")")) error("Unclosed parenthetical expression");
-			return true;
+		return new Program(main, procedures);
+	}
+
+	/**
+	 * Parses the procedures after the main block on the pool, if there is
+	 * one and there are enough procedures to be worth it. The procedures
+	 * are found by a quick scan for each "def" outside braces, and each
+	 * task parses a run of them from its own copy of the text.
+	 * @return The procedures, in order; or <code>null</code> if they are
+	 *         to be parsed here, because they are too few or the program
+	 *         is not plainly well formed.
+	 */
+	private List<Def> parseProceduresInParallel() {
+		if (pool == null || (diagnostics != null && !diagnostics.isEmpty())) return null;
+		int end = tokenizer.getEnd();
+		if (end == 0 || text.charAt(end - 1) != '}') return null;
+		int[] starts = procedureStarts(text, end);
+		if (starts == null || starts.length < PARALLEL_THRESHOLD) return null;
+		Def[] procedures = new Def[starts.length];
+		ProcedureTask task = new ProcedureTask(text, starts, 0, starts.length, procedures, maxNesting);
+		if (!pool.invoke(task)) return null;
+		return Arrays.asList(procedures);
+	}
+
+	/**
+	 * Finds where each procedure begins: each "def", from the given index
+	 * on, that is outside braces. Gives up if there is anything else
+	 * before the first "def", unbalanced braces, or any string or comment
+	 * (in which a brace or "def" would not count).
+	 * @return The index of each "def", or <code>null</code>.
+	 */
+	private static int[] procedureStarts(String text, int from) {
+		int[] starts = new int[16];
+		int count = 0;
+		int depth = 0;
+		for (int i = from; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == 'd' && depth == 0 && text.startsWith("def", i)
+					&& !isNameChar(text, i - 1) && !isNameChar(text, i + 3)) {
+				if (count == starts.length) starts = Arrays.copyOf(starts, 2 * count);
+				starts[count++] = i;
+				i += 2;
+			} else if (count == 0) {
+				if (c != ' ' && c != '\n') return null;
+			} else if (c == '{') {
+				depth++;
+			} else if (c == '}') {
+				if (--depth < 0) return null;
+			} else if (c == '#' || c == '"' || c == '\'') {
+				return null;
+			}
 		}
-		return false;
+		return depth == 0 ? Arrays.copyOf(starts, count) : null;
+	}
+
+	private static boolean isNameChar(String text, int i) {
+		if (i < 0 || i >= text.length()) return false;
+		char c = text.charAt(i);
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
 	}
+
+	/**
+	 * Parses procedures <code>from</code> up to <code>to</code>, splitting
+	 * the work while there are more than a task's worth. Each run of
+	 * procedures is parsed, without recovery, by a parser of its own.
+	 * Yields <code>false</code> if any run does not parse into exactly
+	 * its procedures.
+	 */
+	private static final class ProcedureTask extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private final String text;
+		private final int[] starts;
+		private final int from;
+		private final int to;
+		private final Def[] procedures;
+		private final int maxNesting;
+
+		ProcedureTask(String text, int[] starts, int from, int to, Def[] procedures, int maxNesting) {
+			this.text = text;
+			this.starts = starts;
+			this.from = from;
+			this.to = to;
+			this.procedures = procedures;
+			this.maxNesting = maxNesting;
+		}
+
+		@Override
+		protected Boolean compute() {
+			if (to - from > PROCEDURES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				ProcedureTask first = new ProcedureTask(text, starts, from, middle, procedures, maxNesting);
+				ProcedureTask second = new ProcedureTask(text, starts, middle, to, procedures, maxNesting);
+				first.fork();
+				boolean parsed = second.compute();
+				return first.join() && parsed;
+			}
+			int end = to < starts.length ? starts[to] : text.length();
+			Parser parser = new Parser(text.substring(starts[from], end));
+			parser.maxNesting = maxNesting;
+			try {
+				for (int i = from; i < to; i++) {
+					procedures[i] = parser.parseProcedure();
+					if (procedures[i] == null) return false;
+				}
+			} catch (RuntimeException e) {
+				return false;  // reported again, in order, by the sequential parse
+			}
+			return !parser.tokenizer.hasNext();
+		}
+	}
+
+	private Def parseProcedure() {
+		if (take(TokenType.KEYWORD, "def") == null) return null;
+		Token name = take(TokenType.NAME, null);
+		if (name == null) error("Missing name after \"def\"");
+		List<String> parameters = new ArrayList<String>();
+		Token parameter;
+		while ((parameter = take(TokenType.NAME, null)) != null) {
+			parameters.add(parameter.text);
+		}
+		Block body = parseBlock();
+		if (body == null) error("Unblocked procedure");
+		return new Def(name.text, parameters, body);
+	}
+
+	private Block parseBlock() {
+		if (!nextIs("{")) return null;
+		nest();
+		try {
+			tokenizer.next();
+			return parseBlockBody();
+		} finally {
+			nesting--;
+		}
+	}
+
+	private Block parseBlockBody() {
+		List<Statement> statements = new ArrayList<Statement>();
+		while (true) {
+			try {
+				Statement statement = parseCommand();
+				if (statement != null) {
+					statements.add(statement);
+					continue;
+				}
+				if (diagnostics == null || !tokenizer.hasNext() || nextIs("}")) break;
+				error("Expected a command");
+			} catch (SyntaxError e) {
+				synchronize();
+			}
+		}
+		if (!matchButDontKeep("}")) report("Unclosed parenthetical expression");
+		return new Block(statements);
+	}
+
+	/**
+	 * Goes one level deeper into a block, parenthesized expression or
+	 * "not", whose first token is the next one; but if that is deeper
+	 * than allowed, reports an error there instead.
+	 */
+	private void nest() {
+		if (nesting >= maxNesting) {
+			error("Nested more than " + maxNesting + " deep");
+		}
+		nesting++;
+	}
+
+	/**
+	 * After an error in a command, skips to where the next command in
+	 * the same block should begin: just past a ";", or past a block (and
+	 * any "else" block after it), or just before the "}" that ends the
+	 * block, whichever comes first.
+	 */
+	private void synchronize() {
+		int depth = 0;
+		while (tokenizer.hasNext()) {
+			Token t = tokenizer.next();
+			if (t.text.equals("{")) {
+				depth++;
+			} else if (t.text.equals("}")) {
+				if (depth == 0) {
+					tokenizer.backUp();
+					return;
+				}
+				if (--depth == 0 && !nextIs("else")) return;
+			} else if (depth == 0 && t.text.equals(";")) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Parses a &lt;command&gt;, reading its first token only once.
+	 */
+	private Statement parseCommand() {
+		if (!tokenizer.hasNext()) return null;
+		Token t = tokenizer.next();
+		Statement command = parseThought(t);
+		if (command == null) command = parseAction(t);
+		if (command == null) tokenizer.backUp();
+		return command;
+	}
+
+	/**
+	 * Given the token just read, parses the rest of a &lt;thought&gt;
+	 * beginning with it; returns <code>null</code>, having read nothing
+	 * further, if the token does not begin one.
+	 */
+	private Statement parseThought(Token t) {
+		if (t.type != TokenType.KEYWORD) return null;
+		if (t.text.equals("set")) {
+			Token variable = take(TokenType.NAME, null);
+			if (variable == null) error("Missing variable after set!");
+			Expression value = parseExpression();
+			if (value == null) error("Missing expression to set variable");
+			if (!matchButDontKeep(";")) error("Missing \';\' after expression");
+			return new Set(variable.text, value);
+		}
+		if (t.text.equals("repeat")) {
+			Expression count = parseExpression();
+			if (count == null) error("Missing expression after repeat");
+			Block body = parseBlock();
+			if (body == null) error("Missing block after");
+			return new Repeat(count, body);
+		}
+		if (t.text.equals("while")) {
+			Condition condition = parseCondition();
+			if (condition == null) error("Mission while condition");
+			Block body = parseBlock();
+			if (body == null) error("No block for while");
+			return new While(condition, body);
+		}
+		if (t.text.equals("if")) {
+			Condition condition = parseCondition();
+			if (condition == null) error("Missing conditions for if statement");
+			Block thenBlock = parseBlock();
+			if (thenBlock == null) error("No block for if statement");
+			Block elseBlock = null;
+			if (matchButDontKeep("else")) {
+				elseBlock = parseBlock();
+				if (elseBlock == null) error("Missing block after else statement");
+			}
+			return new If(condition, thenBlock, elseBlock);
+		}
+		if (t.text.equals("call")) {
+			Token name = take(TokenType.NAME, null);
+			if (name == null) error("Missing name to call");
+			List<Expression> arguments = new ArrayList<Expression>();
+			Expression argument;
+			while ((argument = parseExpression()) != null) {
+				arguments.add(argument);
+			}
+			if (!matchButDontKeep(";")) error("Missing \';\' at the end of call statement");
+			return new Call(name.text, arguments);
+		}
+		return null;
+	}
+
+	/**
+	 * Given the token just read, parses the rest of an &lt;action&gt;
+	 * beginning with it; returns <code>null</code>, having read nothing
+	 * further, if the token does not begin one.
+	 */
+	private Statement parseAction(Token t) {
+		if (t.type != TokenType.KEYWORD) return null;
+		Statement action;
+		if (t.text.equals("forward") || t.text.equals("back")) {
+			Expression distance = parseExpression();
+			if (distance == null) error("Missing expression after move statement");
+			action = new Move(t.text.equals("forward") ? Move.Direction.FORWARD
+			                                           : Move.Direction.BACK, distance);
+		} else if (t.text.equals("turn")) {
+			Turn.Direction direction = null;
+			Token d = take(TokenType.KEYWORD, null);
+			if (d != null) {
+				for (Turn.Direction each : Turn.Direction.values()) {
+					if (each.keyword.equals(d.text)) direction = each;
+				}
+				if (direction == null) tokenizer.backUp();
+			}
+			if (direction == null) error("Missing direction after keyword turn");
+			action = new Turn(direction);
+		} else if (t.text.equals("take")) {
+			Token thing = take(TokenType.NAME, null);
+			if (thing == null) error("Missing the thing to take");
+			action = new Take(thing.text);
+		} else if (t.text.equals("drop")) {
+			Token thing = take(TokenType.NAME, null);
+			if (thing == null) error("Missing the thing to drop");
+			action = new Drop(thing.text);
+		} else if (t.text.equals("stop")) {
+			action = new Stop();
+		} else {
+			return null;
+		}
+		if (!matchButDontKeep(";")) error("Missing \';\' at the end of action statement");
+		return action;
+	}
+
+	/**
+	 * Parses a &lt;condition&gt; and returns its tree, or returns
+	 * <code>null</code> (consuming nothing) if there is none.
+	 */
+	private Condition parseCondition() {
+		Expression left = parseExpression();
+		if (left != null) {
+			Token comparator = take(TokenType.OPERATOR, null);
+			Compare.Operator operator = comparator == null ? null
+					: Compare.Operator.forSymbol(comparator.text);
+			if (operator == null) {
+				if (comparator != null) tokenizer.backUp();
+				error("Missing comparator in condition expression");
+			}
+			Expression right = parseExpression();
+			if (right == null) error("Missing expression after comdition comparator");
+			return new Compare(operator, left, right);
+		}
+		if (!tokenizer.hasNext()) return null;
+		Token t = tokenizer.next();
+		if (t.type == TokenType.KEYWORD) {
+			if (t.text.equals("seeing") || t.text.equals("holding")) {
+				Token thing = take(TokenType.NAME, null);
+				if (thing == null) error("Missing thing after seeing/holding");
+				return t.text.equals("seeing") ? new Seeing(thing.text) : new Holding(thing.text);
+			}
+			if (t.text.equals("not")) {
+				tokenizer.backUp();
+				nest();
+				try {
+					tokenizer.next();
+					Condition condition = parseCondition();
+					if (condition == null) error("Missing condition after not");
+					return new Not(condition);
+				} finally {
+					nesting--;
+				}
+			}
+		}
+		tokenizer.backUp();
+		return null;
+	}
+
+	//----- Expressions, by precedence climbing
+
+	/**
+	 * Parses an &lt;expression&gt; and returns its tree, or returns
+	 * <code>null</code> (consuming nothing) if there is none. Operators
+	 * of equal precedence group to the left, as they always have.
+	 */
+	private Expression parseExpression() {
+		Token sign = takeOperator(ADD_PRECEDENCE, ADD_PRECEDENCE);
+		Expression left;
+		if (sign != null) {
+			Expression term = parseTerm();
+			if (term == null) error("Unary operator not followed by term.");
+			left = new Unary(BinOp.Operator.forSymbol(sign.text), term);
+		} else {
+			left = parseTerm();
+			if (left == null) return null;
+		}
+		return climb(left, ADD_PRECEDENCE);
+	}
+
+	/**
+	 * Parses a &lt;term&gt; and returns its tree, or returns <code>null</code>
+	 * (consuming nothing) if there is none.
+	 */
+	private Expression parseTerm() {
+		Expression factor = parseFactor();
+		return factor == null ? null : climb(factor, MULTIPLY_PRECEDENCE);
+	}
+
+	/**
+	 * Given the tree of an operand already parsed, parses any following
+	 * operators of at least the given precedence, with their right-hand
+	 * operands, and returns the tree of the whole.
+	 */
+	private Expression climb(Expression left, int minPrecedence) {
+		Token operator;
+		while ((operator = takeOperator(minPrecedence, MULTIPLY_PRECEDENCE)) != null) {
+			int precedence = precedence(operator);
+			Expression right = parseFactor();
+			if (right == null) {
+				error(precedence == ADD_PRECEDENCE ? "Error in expression after '+' or '-'"
+				                                   : "No term after '*' or '/'");
+			}
+			if (precedence < MULTIPLY_PRECEDENCE) {
+				right = climb(right, precedence + 1);
+			}
+			left = new BinOp(BinOp.Operator.forSymbol(operator.text), left, right);
+		}
+		return left;
+	}
+
+	/**
+	 * Parses a &lt;factor&gt; and returns its tree, or returns
+	 * <code>null</code> (consuming nothing) if there is none. Reads
+	 * the next token only once, however the factor begins.
+	 */
+	private Expression parseFactor() {
+		if (!tokenizer.hasNext()) return null;
+		Token t = tokenizer.next();
+		if (t.type == TokenType.NAME) {
+			return new Var(t.text);
+		}
+		if (t.type == TokenType.INT) {
+			try {
+				return new Literal(Integer.parseInt(t.text));
+			} catch (NumberFormatException e) {
+				error("Number too large: " + t.text);
+			}
+		}
+		if (t.type == TokenType.KEYWORD) {
+			for (Sensor.Reading reading : Sensor.Reading.values()) {
+				if (reading.keyword.equals(t.text)) return new Sensor(reading);
+			}
+		}
+		if (t.text.equals("(")) {
+			tokenizer.backUp();
+			nest();
+			try {
+				tokenizer.next();
+				Expression expression = parseExpression();
+				if (expression == null) error("Error in parenthesized expression");
+				if (!matchButDontKeep(")")) error("Unclosed parenthetical expression");
+				return expression;
+			} finally {
+				nesting--;
+			}
+		}
+		tokenizer.backUp();
+		return null;
+	}
+
+	/**
+	 * Consumes and returns the next token if it is an arithmetic operator
+	 * whose precedence lies in the given range; otherwise consumes nothing
+	 * and returns <code>null</code>.
+	 */
+	private Token takeOperator(int minPrecedence, int maxPrecedence) {
+		if (!tokenizer.hasNext()) return null;
+		Token t = tokenizer.next();
+		int precedence = precedence(t);
+		if (precedence >= minPrecedence && precedence <= maxPrecedence) {
+			return t;
+		}
+		tokenizer.backUp();
+		return null;
+	}
+
+	/**
+	 * Returns the precedence of the given token as a binary operator:
+	 * <code>ADD_PRECEDENCE</code> for "+" and "-",
+	 * <code>MULTIPLY_PRECEDENCE</code> for "*", "/" and "%", and
+	 * zero for anything else.
+	 */
+	private static int precedence(Token t) {
+		if (t.type != TokenType.OPERATOR || t.text.length() != 1) return 0;
+		switch (t.text.charAt(0)) {
+			case '+': case '-': return ADD_PRECEDENCE;
+			case '*': case '/': case '%': return MULTIPLY_PRECEDENCE;
+			default: return 0;
+		}
+	}
+
 	/**
 	 * Tries to parse an &lt;add_operator&gt;.
 	 * <pre>&lt;add_operator&gt; ::= "+" | "-"</pre>
@@ -503,14 +948,10 @@ public class Parser {
 	 * @return <code>true</code> if the next token has the expected type.
 	 */
 	public boolean nextTokenMatches(TokenType type) {
-		if (!tokenizer.hasNext()) return false;
-		Token t = tokenizer.next();
-		if (t.type == type) {
-			stack.push(new Tree<Token>(t));
-			return true;
-		}
-		tokenizer.backUp();
-		return false;
+		Token t = take(type, null);
+		if (t == null) return false;
+		stack.push(new Tree<Token>(t));
+		return true;
 	}
 
 	/**
@@ -525,14 +966,23 @@ public class Parser {
 	 * @return <code>true</code> if the next token has the expected type.
 	 */
 	public boolean nextTokenMatches(TokenType type, String text) {
-		if (!tokenizer.hasNext()) return false;
+		Token t = take(type, text);
+		if (t == null) return false;
+		stack.push(new Tree<Token>(t));
+		return true;
+	}
+
+	/**
+	 * Consumes and returns the next token if it has the expected type and,
+	 * unless <code>text</code> is <code>null</code>, the expected text;
+	 * otherwise consumes nothing and returns <code>null</code>.
+	 */
+	private Token take(TokenType type, String text) {
+		if (!tokenizer.hasNext()) return null;
 		Token t = tokenizer.next();
-		if (type == t.type && text.equals(t.text)) {
-			stack.push(new Tree<Token>(t));
-			return true;
-		}
+		if (t.type == type && (text == null || text.equals(t.text))) return t;
 		tokenizer.backUp();
-		return false;
+		return null;
 	}
 	/**
 	 * Utility routine to throw a <code>RuntimeException</code> with the
@@ -540,6 +990,10 @@ public class Parser {
 	 * @param reason Why the <code>RuntimeException</code> was thrown.
 	 */
 	private void error(String reason) {
+		if (diagnostics != null) {
+			report(reason);
+			throw SYNTAX_ERROR;
+		}
 		final int TOKENS_TO_DISPLAY = 6;
 		boolean needEllipsis = true;
 		String message = reason + ": \"";
@@ -558,24 +1012,32 @@ public class Parser {
 		throw new RuntimeException(message);
 	}
 
-	private void swapTopTwoElementsOfStack() {
-		Tree<Token> tree1 = stack.pop();
-		Tree<Token> tree2 = stack.pop();
-		stack.push(tree1);
-		stack.push(tree2);
+	/**
+	 * While recovering from errors, records an error at the next token
+	 * and returns; otherwise, like <code>error</code>, throws a
+	 * <code>RuntimeException</code>.
+	 * @param reason What is wrong.
+	 */
+	private void report(String reason) {
+		if (diagnostics == null) error(reason);
+		if (tokenizer.hasNext()) {
+			tokenizer.next();
+			diagnostics.add(new Diagnostic(reason, tokenizer.getStart(), tokenizer.getEnd()));
+			tokenizer.backUp();
+		} else {
+			diagnostics.add(new Diagnostic(reason, tokenizer.getEnd(), tokenizer.getEnd()));
+		}
 	}
 
 	/**
-	 * Removes two Trees from the stack, makes a new Tree and
-	 * puts it on the stack. The element on the top of the stack
-	 * (the most recently seen element) is made the child of the
-	 * element beneath it (which was seen earlier).
+	 * Tests whether the next token has the given text, without
+	 * consuming it.
 	 */
-	private void makeTree() {
-		Tree<Token> child = stack.pop();
-		Tree<Token> parent = stack.pop();
-		parent.addChild(child);
-		stack.push(parent);
+	private boolean nextIs(String text) {
+		if (!tokenizer.hasNext()) return false;
+		boolean result = tokenizer.next().text.equals(text);
+		tokenizer.backUp();
+		return result;
 	}
 
 	/**
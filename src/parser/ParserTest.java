@@ -0,0 +1,250 @@
+package parser;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ast.BinOp;
+import ast.Block;
+import ast.Call;
+import ast.Compare;
+import ast.If;
+import ast.Literal;
+import ast.NodeKind;
+import ast.Program;
+import ast.Set;
+import ast.Unary;
+import ast.Var;
+
+public class ParserTest {
+
+	@Test
+	public void testExpressionsGroupLeft() {
+		Parser parser = new Parser("a-b+c*d/e");
+		assertTrue(parser.expression());
+		assertEquals("OPERATOR:+(OPERATOR:-(NAME:a, NAME:b), OPERATOR:/(OPERATOR:*(NAME:c, NAME:d), NAME:e))",
+		             parser.getParseTree().toString());
+		assertFalse(parser.getTokenizer().hasNext());
+	}
+
+	@Test
+	public void testUnaryAppliesToFirstTerm() {
+		Parser parser = new Parser("-a*b+c");
+		assertTrue(parser.expression());
+		assertEquals("OPERATOR:+(OPERATOR:-(OPERATOR:*(NAME:a, NAME:b)), NAME:c)",
+		             parser.getParseTree().toString());
+	}
+
+	@Test
+	public void testTypedProgram() {
+		Program program = new Parser("program { if -x < 2 { call f x 3; } } def f a b { stop; }").parseProgram();
+		assertEquals(1, program.main.statements.size());
+		If conditional = (If) program.main.statements.get(0);
+		assertNull(conditional.elseBlock);
+		Compare compare = (Compare) conditional.condition;
+		assertEquals(Compare.Operator.LESS, compare.operator);
+		assertEquals(NodeKind.UNARY, compare.left.kind);
+		assertEquals("x", ((Var) ((Unary) compare.left).operand).name);
+		assertEquals(2, ((Literal) compare.right).value);
+		Block then = conditional.thenBlock;
+		Call call = (Call) then.statements.get(0);
+		assertEquals("f", call.name);
+		assertEquals(2, call.arguments.size());
+		assertEquals(1, program.procedures.size());
+		assertEquals("f", program.procedures.get(0).name);
+		assertEquals(2, program.procedures.get(0).parameters.size());
+		assertEquals(NodeKind.STOP, program.procedures.get(0).body.statements.get(0).kind);
+	}
+
+	@Test
+	public void testTreeAdapterMatchesParseTree() {
+		String text = "program { set x 1 + 2 * 3; repeat x { forward (x+1)*2; turn left; } "
+		            + "if x < 3 { take Coin; } else { drop Coin; } while not seeing Block { call f x y+1; } stop; } "
+		            + "def f a b { back a % b; }";
+		// The tree the parser built before it had typed nodes
+		String expected = "KEYWORD:program(NAME:block("
+		        + "KEYWORD:set(NAME:x, OPERATOR:+(INT:1, OPERATOR:*(INT:2, INT:3))), "
+		        + "KEYWORD:repeat(NAME:x, NAME:block(KEYWORD:forward(OPERATOR:*(OPERATOR:+(NAME:x, INT:1), INT:2)), "
+		        + "KEYWORD:turn(KEYWORD:left))), "
+		        + "KEYWORD:if(OPERATOR:<(NAME:x, INT:3), NAME:block(KEYWORD:take(NAME:Coin)), "
+		        + "NAME:block(KEYWORD:drop(NAME:Coin))), "
+		        + "KEYWORD:while(KEYWORD:not(KEYWORD:seeing(NAME:Block)), "
+		        + "NAME:block(KEYWORD:call(NAME:f, NAME:x, OPERATOR:+(NAME:y, INT:1)))), "
+		        + "KEYWORD:stop), "
+		        + "KEYWORD:def(NAME:header(NAME:f, NAME:a, NAME:b), NAME:block(KEYWORD:back(OPERATOR:%(NAME:a, NAME:b)))))";
+		Parser parser = new Parser(text);
+		assertTrue(parser.program());
+		assertEquals(expected, parser.getParseTree().toString());
+		assertEquals(expected, new Parser(text).parseProgram().toTree().toString());
+	}
+
+	@Test
+	public void testNotAProgram() {
+		Parser parser = new Parser("forward 1;");
+		assertNull(parser.parseProgram());
+		assertTrue(parser.getTokenizer().hasNext());
+	}
+
+	@Test(expected=RuntimeException.class)
+	public void testMissingSemicolon() {
+		new Parser("program { forward 1 }").parseProgram();
+	}
+
+	@Test
+	public void testBinaryOperators() {
+		Set set = (Set) new Parser("program { set x 7 % 3; }").parseProgram().main.statements.get(0);
+		assertEquals("x", set.variable);
+		BinOp op = (BinOp) set.value;
+		assertEquals(BinOp.Operator.REMAINDER, op.operator);
+		assertEquals(7, ((Literal) op.left).value);
+	}
+
+	@Test
+	public void testRecoveryReportsEveryError() {
+		String text = "program { forward ; turn up; take Coin; if a < { stop; } else { stop; } drop x; }";
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program program = new Parser(text).parseProgram(diagnostics);
+		assertEquals(3, diagnostics.size());
+		assertEquals("Missing expression after move statement", diagnostics.get(0).message);
+		assertEquals(";", text.substring(diagnostics.get(0).start, diagnostics.get(0).end));
+		assertEquals("up", text.substring(diagnostics.get(1).start, diagnostics.get(1).end));
+		assertEquals("{", text.substring(diagnostics.get(2).start, diagnostics.get(2).end));
+		assertEquals("KEYWORD:program(NAME:block(KEYWORD:take(NAME:Coin), KEYWORD:drop(NAME:x)))",
+		             program.toString());
+	}
+
+	@Test
+	public void testRecoveryInProceduresAndNestedBlocks() {
+		String text = "program { repeat 3 { back; } } def { } def f a { forward 1 } junk def g { stop; }";
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program program = new Parser(text).parseProgram(diagnostics);
+		assertEquals(4, diagnostics.size());
+		assertEquals("Missing name after \"def\"", diagnostics.get(1).message);
+		assertEquals("junk", text.substring(diagnostics.get(3).start, diagnostics.get(3).end));
+		assertEquals(1, program.main.statements.size());
+		assertEquals(2, program.procedures.size());
+		assertEquals("g", program.procedures.get(1).name);
+	}
+
+	@Test
+	public void testRecoveryAtEndOfInput() {
+		String text = "  program { forward 1;";
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program program = new Parser(text).parseProgram(diagnostics);
+		assertEquals(1, diagnostics.size());
+		assertEquals(text.length(), diagnostics.get(0).start);
+		assertEquals(1, program.main.statements.size());
+	}
+
+	@Test
+	public void testNoErrors() {
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		assertNotNull(new Parser("program { stop; } def f { }").parseProgram(diagnostics));
+		assertTrue(diagnostics.isEmpty());
+	}
+
+	private static String nestedIfs(int depth) {
+		StringBuilder text = new StringBuilder("program { ");
+		for (int i = 0; i < depth; i++) text.append("if x < 2 { ");
+		text.append("stop; ");
+		for (int i = 0; i < depth; i++) text.append("} ");
+		return text.append("} def f { }").toString();
+	}
+
+	@Test
+	public void testNestingLimit() {
+		Parser parser = new Parser(nestedIfs(9));
+		parser.setMaxNesting(10);
+		assertNotNull(parser.parseProgram());
+		parser = new Parser(nestedIfs(10));
+		parser.setMaxNesting(10);
+		try {
+			parser.parseProgram();
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage().startsWith("Nested more than 10 deep"));
+		}
+	}
+
+	@Test
+	public void testVeryDeepNestingIsReportedNotOverflowed() {
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program program = new Parser(nestedIfs(100000)).parseProgram(diagnostics);
+		assertEquals(1, diagnostics.size());
+		assertEquals("Nested more than " + Parser.DEFAULT_MAX_NESTING + " deep", diagnostics.get(0).message);
+		assertEquals(1, program.procedures.size());
+	}
+
+	@Test
+	public void testParenthesesCountAsNesting() {
+		Parser parser = new Parser("((((a))))");
+		parser.setMaxNesting(3);
+		try {
+			parser.expression();
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage().startsWith("Nested more than 3 deep"));
+		}
+	}
+
+	private static String manyProcedures(int count) {
+		StringBuilder text = new StringBuilder("program { call p0 1; }\n");
+		for (int i = 0; i < count; i++) {
+			text.append("def p").append(i).append(" x { if x < ").append(i)
+			    .append(" { forward x; } else { turn left; }\nwhile seeing Coin { take Coin; } }\n");
+		}
+		return text.toString();
+	}
+
+	private static Parser parallel(String text) {
+		Parser parser = new Parser(text);
+		parser.setPool(ForkJoinPool.commonPool());
+		return parser;
+	}
+
+	@Test
+	public void testParallelParseMatchesSequential() {
+		String text = manyProcedures(1000);
+		Parser parser = parallel(text);
+		Program program = parser.parseProgram();
+		assertFalse(parser.getTokenizer().hasNext());
+		assertEquals(1000, program.procedures.size());
+		assertEquals("p999", program.procedures.get(999).name);
+		assertEquals(new Parser(text).parseProgram().toTree(), program.toTree());
+	}
+
+	@Test
+	public void testParallelParseReportsSameErrors() {
+		String text = manyProcedures(1000).replace("def p500 x { if", "def p500 x { iff");
+		List<Diagnostic> sequential = new ArrayList<Diagnostic>();
+		Program expected = new Parser(text).parseProgram(sequential);
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		Program program = parallel(text).parseProgram(diagnostics);
+		assertEquals(sequential.toString(), diagnostics.toString());
+		assertEquals(expected.toTree(), program.toTree());
+		String message = null;
+		try {
+			new Parser(text).parseProgram();
+			fail();
+		} catch (RuntimeException e) {
+			message = e.getMessage();
+		}
+		try {
+			parallel(text).parseProgram();
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	@Test
+	public void testParallelParseStopsAtJunkLikeSequential() {
+		String text = manyProcedures(1000).replace("def p700", "junk def p700");
+		Program program = parallel(text).parseProgram();
+		assertEquals(700, program.procedures.size());
+	}
+}
@@ -28,4 +28,16 @@ public class Block extends Piece {
         g.setColor(Color.white);
         g.drawString("Block", r.x+12, r.y+20);
     }
+
+    /**
+     * Every <code>Block</code> looks the same, so it need only be drawn
+     * once for each size.
+     * 
+     * @return This piece's class.
+     */
+    @Override
+    protected Object getAppearance() {
+        return getClass();
+    }
+
 }
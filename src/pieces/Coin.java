@@ -45,4 +45,15 @@ public class Coin extends Piece{
         g.drawString("Coin", r.x+12, r.y+20);
     }
 
+    /**
+     * Every coin of the same color looks the same, so it need only be
+     * drawn once for each size.
+     * 
+     * @return The color of this coin.
+     */
+    @Override
+    protected Object getAppearance() {
+        return color;
+    }
+
 }
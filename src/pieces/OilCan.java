@@ -61,4 +61,15 @@ private Color color = Color.orange;
         g.drawString("OilCan", r.x+12, r.y+20);
     }
 
+    /**
+     * Every oil can of the same color looks the same, so it need only be
+     * drawn once for each size.
+     * 
+     * @return The color of this oil can.
+     */
+    @Override
+    protected Object getAppearance() {
+        return color;
+    }
+
 }
@@ -8,6 +8,7 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -124,9 +125,9 @@ public class RobotGui extends JFrame implements Runnable{
 		allMovePanel.add(movePanel);
 		allMovePanel.add(moveToPanel);
 
-		Iterator<Piece> iter1 = viewBoard.getPieces(RobotPiece.getInstance().getRow(), RobotPiece.getInstance().getColumn()).iterator();
-		while(iter1.hasNext()){
-			Piece p = iter1.next();
+		List<Piece> cell = viewBoard.piecesAt(RobotPiece.getInstance().getRow(), RobotPiece.getInstance().getColumn());
+		for(int i = 0; i < cell.size(); i++){
+			Piece p = cell.get(i);
 			if(! (p instanceof RobotPiece)){
 				unPickeditems.addItem(p);
 			}
@@ -342,9 +343,9 @@ public class RobotGui extends JFrame implements Runnable{
 	 */
 	public void updateUnpickedItems(){
 		unPickeditems.removeAllItems();
-		Iterator<Piece> iter1 = viewBoard.getPieces(RobotPiece.getInstance().getRow(), RobotPiece.getInstance().getColumn()).iterator();
-		while(iter1.hasNext()){
-			Piece p = iter1.next();
+		List<Piece> cell = viewBoard.piecesAt(RobotPiece.getInstance().getRow(), RobotPiece.getInstance().getColumn());
+		for(int i = 0; i < cell.size(); i++){
+			Piece p = cell.get(i);
 			if(! (p instanceof RobotPiece)){
 				unPickeditems.addItem(p);
 			}
@@ -1,6 +1,8 @@
 package weizhuo;
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 
@@ -12,6 +14,7 @@ public class RobotPiece extends Piece{
 	private Color color = Color.green;
 	private Direction faceTo;
 	private ArrayList<Piece> itemList = new ArrayList<Piece>();
+	private List<Object> appearance;
 
 	public ArrayList<Piece> getPieces(){
 		return itemList;
@@ -62,6 +65,7 @@ public class RobotPiece extends Piece{
 
 	public void setDirection(Direction d){
 		this.faceTo = d;
+		appearance = null;
 	}
 	
 	public Direction getDirection(){
@@ -107,5 +111,16 @@ public class RobotPiece extends Piece{
 		g.drawString("ROBOT", r.x+12, r.y+20);
 	}
 
-
+	/**
+	 * The robot is drawn according to its color and the direction it faces.
+	 * 
+	 * @return The color and direction of this robot.
+	 */
+	@Override
+	protected Object getAppearance() {
+		if (appearance == null) {
+			appearance = Arrays.<Object>asList(color, faceTo);
+		}
+		return appearance;
+	}
 }
@@ -61,4 +61,15 @@ private Color color = Color.blue;
         g.drawString("Tazer", r.x+12, r.y+20);
     }
 
+    /**
+     * Every tazer of the same color looks the same, so it need only be
+     * drawn once for each size.
+     * 
+     * @return The color of this tazer.
+     */
+    @Override
+    protected Object getAppearance() {
+        return color;
+    }
+
 }
@@ -3,8 +3,11 @@
  */
 package tokenizer;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.regex.*;
 
 /** 
@@ -14,9 +17,26 @@ import java.util.regex.*;
  */
 public class Tokenizer implements Iterator<Token> {
 
+    private static final Pattern FLOAT_PATTERN_2 = Pattern.compile("([0-9]{0,}[.][0-9]{1,}[eE][+-]{0,1}[0-9]{1,3})|([0-9]{1,}[.][0-9]{0,}[eE][+-]{0,1}[0-9]{1,3})");
+    private static final Pattern FLOAT_PATTERN_1 = Pattern.compile("([0-9]{0,}[.][0-9]{1,})|([0-9]{1,}[.][0-9]{0,})|([0-9]{1,}[eE][+-]{0,1}[0-9]{1,3})");
+    private static final Pattern INT_PATTERN = Pattern.compile("[0-9]{1,}");
+    private static final Pattern NAME_PATTERN = Pattern.compile("([a-zA-Z_])([a-zA-Z0-9_]){0,}");
+    private static final Pattern GROUPING_PATTERN = Pattern.compile("[)(}{\\]\\[]{1}");
+    private static final Pattern OPERATOR_PATTERN = Pattern.compile("([-+*/%=!<>]{1}[=]{1})|([;~`!@$%^&*+-=|\\\\<,>./?]{1})");
+    private static final Pattern STRING_PATTERN = Pattern.compile("([\"][^\"]{0,}[\"])|([\'][^\']{0,}[\'])");
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("[#][^\n]{0,}");
+    private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+            "program", "set", "repeat", "while", "if", "else", "call",
+            "turn", "take", "drop", "stop", "forward", "back", "right", "left", "around",
+            "seeing", "holding", "not", "def", "row", "column", "distance"));
+
     private String input;
     private int position;
     private int lastPosition;
+    private int offset;       // characters trimmed from the front of the original string
+    private int tokenStart;   // where the most recent token began
+    private int tokenEnd;     // and where it ended
+    private Matcher matcher;
 
     private enum States{
         READY, ERROR	
@@ -27,8 +47,12 @@ public class Tokenizer implements Iterator<Token> {
      */
     public Tokenizer(String input){
         this.input = input.trim() + " ";
+        while (offset < input.length() && input.charAt(offset) <= ' ') {
+            offset++;  // as trim() does
+        }
         this.position = 0;
         this.lastPosition = this.position;
+        this.matcher = INT_PATTERN.matcher(this.input);
     }
     /**
      * Indicates whether there are more token in the tokenizer string.
@@ -55,102 +79,106 @@ public class Tokenizer implements Iterator<Token> {
 
         state = States.READY;
         //discard the space in front of a token
-        while(input.substring(position).startsWith(" ")||input.substring(position).startsWith("\n")){
+        while(input.charAt(position) == ' '||input.charAt(position) == '\n'){
             position+=1;
         }
+        tokenStart = position;
 
         switch (state){
         case READY:{
 
             //FLOAT 
-            Pattern floatPattern2 = Pattern.compile("([0-9]{0,}[.][0-9]{1,}[eE][+-]{0,1}[0-9]{1,3})|([0-9]{1,}[.][0-9]{0,}[eE][+-]{0,1}[0-9]{1,3})");
-            Matcher floatMatcher2 = floatPattern2.matcher(input.substring(position));
-            if(floatMatcher2.lookingAt()){
-                value = input.substring(floatMatcher2.start()+position, floatMatcher2.end()+position);
-                position += floatMatcher2.end();
-                return new Token(TokenType.FLOAT, value);
+            if(lookingAt(FLOAT_PATTERN_2)){
+                return new Token(TokenType.FLOAT, take());
             }
-            Pattern floatPattern1 = Pattern.compile("([0-9]{0,}[.][0-9]{1,})|([0-9]{1,}[.][0-9]{0,})|([0-9]{1,}[eE][+-]{0,1}[0-9]{1,3})");
-            Matcher floatMatcher1 = floatPattern1.matcher(input.substring(position));
-            if(floatMatcher1.lookingAt()){
-                value = input.substring(floatMatcher1.start()+position, floatMatcher1.end()+position);
-                position += floatMatcher1.end();
-                return new Token(TokenType.FLOAT, value);
+            if(lookingAt(FLOAT_PATTERN_1)){
+                return new Token(TokenType.FLOAT, take());
             }
 
             //INT --an unsigned integer, consisting of one or more digits
-            Pattern intPattern = Pattern.compile("[0-9]{1,}");
-            Matcher intMatcher = intPattern.matcher(input.substring(position));
-            if(intMatcher.lookingAt()){
-                value = input.substring(intMatcher.start()+position, intMatcher.end()+position);
-                position += intMatcher.end();
-                return new Token(TokenType.INT, value);
+            if(lookingAt(INT_PATTERN)){
+                return new Token(TokenType.INT, take());
             }
 
             //NAME--begins with a letter or an underscore, followed by zero or more letters, digits, and underscores.
-            Pattern namePattern = Pattern.compile("([a-zA-Z_])([a-zA-Z0-9_]){0,}") ;
-            Matcher nameMatcher = namePattern.matcher(input.substring(position));
-            if(nameMatcher.lookingAt()){
-                value = input.substring(nameMatcher.start()+position, nameMatcher.end()+position);
-                position += nameMatcher.end();
+            if(lookingAt(NAME_PATTERN)){
+                value = take();
 
                 //KEYWORD--Any token matches the pattern for NAME, but is also one of (program, set, repeat, etc.)
-                Pattern keywordPattern1 = Pattern.compile("(program)|(set)|(repeat)|(while)|(if)|(else)|(call)");
-                Matcher keywordMatcher1 = keywordPattern1.matcher(value);
-                Pattern keywordPattern2 = Pattern.compile("(turn)|(take)|(drop)|(stop)|(forward)|(back)|(right)|(left)|(around)");
-                Matcher keywordMatcher2 = keywordPattern2.matcher(value);
-                Pattern keywordPattern3 = Pattern.compile("(seeing)|(holding)|(not)|(def)|(row)|(column)|(distance)");
-                Matcher keywordMatcher3 = keywordPattern3.matcher(value);
-                if(keywordMatcher1.matches()||keywordMatcher2.matches()||keywordMatcher3.matches()){
+                if(KEYWORDS.contains(value)){
                     return new Token(TokenType.KEYWORD, value);
                 }
                 return new Token(TokenType.NAME, value);
             }
 
             //GROUPING_SYMBOL--any one of the following six symbols: ( ) [ ] { } 
-            Pattern groupingPattern = Pattern.compile("[)(}{\\]\\[]{1}");
-            Matcher groupingMatcher = groupingPattern.matcher(input.substring(position));
-            if(groupingMatcher.lookingAt()){
-                value = input.substring(groupingMatcher.start()+position, groupingMatcher.end()+position);
-                position += groupingMatcher.end();
-                return new Token(TokenType.GROUPING_SYMBOL, value);
+            if(lookingAt(GROUPING_PATTERN)){
+                return new Token(TokenType.GROUPING_SYMBOL, take());
             }
 
             //OPERATOR--Single characters, and Two-character sequences
-            Pattern operatorPattern = Pattern.compile("([-+*/%=!<>]{1}[=]{1})|([;~`!@$%^&*+-=|\\\\<,>./?]{1})");
-            Matcher operatorMatcher = operatorPattern.matcher(input.substring(position));
-            if(operatorMatcher.lookingAt()){
-                value = input.substring(operatorMatcher.start()+position, operatorMatcher.end()+position);
-                position += operatorMatcher.end();
-                return new Token(TokenType.OPERATOR, value);
+            if(lookingAt(OPERATOR_PATTERN)){
+                return new Token(TokenType.OPERATOR, take());
             }
 
             //STRING -- zero or more characters, enclosed in either single quotes (') or double quotes (").
-            Pattern stringPattern = Pattern.compile("([\"][^\"]{0,}[\"])|([\'][^\']{0,}[\'])");
-            Matcher stringMatcher = stringPattern.matcher(input.substring(position));
-            if(stringMatcher.lookingAt()){
-                value = input.substring(stringMatcher.start()+position, stringMatcher.end()+position);
-                position += stringMatcher.end();
-                return new Token(TokenType.STRING, value);
+            if(lookingAt(STRING_PATTERN)){
+                return new Token(TokenType.STRING, take());
             }
 
             //COMMENT -- A Python-style string, beginning with # and extending to the end of the line.
-            Pattern commentPattern = Pattern.compile("[#][^\n]{0,}");
-            Matcher commentMatcher = commentPattern.matcher(input.substring(position));
-            if(commentMatcher.lookingAt()){
-                value = input.substring(commentMatcher.start()+position, commentMatcher.end()+position).trim();
-                position += commentMatcher.end();
-                return new Token(TokenType.COMMENT, value);
+            if(lookingAt(COMMENT_PATTERN)){
+                return new Token(TokenType.COMMENT, take().trim());
             }
         }
         default:{
 
             value = input.substring(position, position+1);
             position +=1;
+            tokenEnd = position;
             return new Token(TokenType.ERROR, value);
         }
         }
     }
+    /**
+     * Tests whether the given pattern matches the input at the current
+     * position, without copying the rest of the input.
+     */
+    private boolean lookingAt(Pattern pattern){
+        matcher.usePattern(pattern);
+        matcher.region(position, input.length());
+        return matcher.lookingAt();
+    }
+    /**
+     * Consumes the text of the latest match, and returns it.
+     */
+    private String take(){
+        position = tokenEnd = matcher.end();
+        return input.substring(matcher.start(), matcher.end());
+    }
+    /**
+     * Returns where, in the string given to the constructor, the token
+     * most recently returned by <code>next()</code> begins.
+     * @return The index of its first character.
+     */
+    public int getStart(){
+        return offset + tokenStart;
+    }
+    /**
+     * Returns where, in the string given to the constructor, the token
+     * most recently returned by <code>next()</code> ends.
+     * @return The index just past its last character.
+     */
+    public int getEnd(){
+        return offset + tokenEnd;
+    }
+    /**
+     * Consumes the rest of the string without tokenizing it, so that
+     * <code>hasNext()</code> returns <code>false</code>.
+     */
+    public void skipRest(){
+        this.lastPosition = this.position = this.tokenStart = this.tokenEnd = this.input.length()-1;
+    }
     /**
      * UnsupportedOperation
      * @see java.util.Iterator#remove()
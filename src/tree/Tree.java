@@ -1,6 +1,8 @@
 package tree;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * General tree API.
@@ -14,6 +16,19 @@ public class Tree<T> {
     private Tree<T> parent;               // The parent of this node
     private ArrayList<Tree<T>> children;  // The children of this node
     private int myIndex;  // The index of this node in its parent's list of children
+    private int depth;    // The distance from the root, if cached; else -1
+
+    /**
+     * The orders in which a <code>Cursor</code> can visit the nodes of a tree.
+     */
+    public enum Order {
+        /** Each node before its children, and children left to right. */
+        PREORDER,
+        /** Each node after its children, and children left to right. */
+        POSTORDER,
+        /** Level by level from the root, and each level left to right. */
+        BREADTH_FIRST
+    }
     
 // Constructors
     
@@ -28,6 +43,7 @@ public class Tree<T> {
         parent = null;
         children = new ArrayList<Tree<T>>();
         myIndex = -1;
+        depth = -1;
     }
 
 // Values
@@ -197,13 +213,60 @@ public class Tree<T> {
     }
     
     /**
-     * Returns the distance from the root of this node.
+     * Returns the distance from the root of this node. This takes time
+     * proportional to the depth, unless depths are being cached (see
+     * <code>setDepthCaching</code>), when it takes constant time.
      * 
      * @return the distance from the root.
      */
     public int depth() {
-        if (parent == null) return 0;
-        return 1 + parent.depth();
+        if (depth >= 0) return depth;
+        int result = 0;
+        for (Tree<T> node = parent; node != null; node = node.parent) {
+            result++;
+        }
+        return result;
+    }
+    
+    /**
+     * Turns on or off the caching of depths for the whole tree this node
+     * is in. While it is on, every node of the tree remembers its depth,
+     * so <code>depth()</code> takes constant time; in exchange, adding or
+     * removing a subtree takes time proportional to the size of that
+     * subtree, to bring its depths up to date. So caching pays when a
+     * tree that is no longer changing much is asked for many depths. A
+     * subtree added to a tree that is caching depths has its depths
+     * cached too; one added to a tree that is not, stops caching them.
+     * 
+     * @param enabled <code>true</code> to cache depths,
+     *        <code>false</code> to stop.
+     */
+    public void setDepthCaching(boolean enabled) {
+        Tree<T> root = this;
+        while (root.parent != null) {
+            root = root.parent;
+        }
+        root.cacheDepths(enabled ? 0 : -1);
+    }
+    
+    /**
+     * Tests whether the tree this node is in is caching depths.
+     * 
+     * @return <code>true</code> if depths are being cached.
+     */
+    public boolean isDepthCaching() {
+        return depth >= 0;
+    }
+    
+    /**
+     * Sets the cached depth of each node of this subtree, given the
+     * depth of this node; or, if that is negative, clears them.
+     */
+    private void cacheDepths(int depth) {
+        Cursor<T> cursor = new Cursor<T>(Order.PREORDER).reset(this);
+        while (cursor.next()) {
+            cursor.node().depth = depth < 0 ? -1 : depth + cursor.depth();
+        }
     }
     
     /**
@@ -226,19 +289,31 @@ public class Tree<T> {
     
     /**
      * Adds a child to this node, following any previously existing
-     * children.
+     * children. Adding a leaf takes constant time; adding a node with
+     * children means checking that it is not an ancestor of this node,
+     * which takes time proportional to the depth of this node.
      * 
      * @param newChild The node to be added as a child.
      */
     public void addChild(Tree<T> newChild) {
-        if (this.hasAncestor(newChild)) {
+        // A leaf can be an ancestor of no node but itself
+        if (newChild == this || (newChild.hasChildren() && this.hasAncestor(newChild))) {
             String message = this + " is already in " + newChild;
             throw new IllegalArgumentException(message);
         }
+        attach(newChild);
+    }
+    
+    private void attach(Tree<T> newChild) {
         int count = children.size();
         children.add(newChild);
         newChild.parent = this;
         newChild.myIndex = count;
+        if (depth >= 0) {
+            newChild.cacheDepths(depth + 1);
+        } else if (newChild.depth >= 0) {
+            newChild.cacheDepths(-1);
+        }
     }
     
     /**
@@ -268,6 +343,73 @@ public class Tree<T> {
                 decrement = 1;
             }
         }
+        parent = null;
+        myIndex = -1;
+        if (depth > 0) {
+            cacheDepths(0);
+        }
+    }
+    
+    /**
+     * Builds a tree from the top node down to its children, each of which
+     * must be a root (typically one just built). Since the node being
+     * built is not yet part of any tree, no child can be its ancestor, so
+     * there is no need for <code>addChild</code>'s check, and each child
+     * is added in constant time. Building a whole tree this way, from the
+     * leaves up, takes time linear in its size, however deep it is.
+     * <pre>
+     * Tree&lt;String&gt; tree = new Tree.Builder&lt;String&gt;("+")
+     *         .add(new Tree&lt;String&gt;("1"))
+     *         .add(new Tree&lt;String&gt;("2"))
+     *         .build();</pre>
+     * 
+     * @param <T> The type of value held in each node of the Tree.
+     */
+    public static final class Builder<T> {
+        private Tree<T> tree;
+        
+        /**
+         * Starts building a tree whose top node holds the given value.
+         * 
+         * @param value The value to put in the top node.
+         */
+        public Builder(T value) {
+            tree = new Tree<T>(value);
+        }
+        
+        /**
+         * Adds a child to the top node, following any previously added.
+         * 
+         * @param child The root of the tree to add as a child.
+         * @return This builder.
+         * @throws IllegalArgumentException If the child is not a root.
+         * @throws IllegalStateException If the tree has been built.
+         */
+        public Builder<T> add(Tree<T> child) {
+            if (tree == null) {
+                throw new IllegalStateException("Tree already built");
+            }
+            if (child.parent != null) {
+                throw new IllegalArgumentException(child + " is already in " + child.parent);
+            }
+            tree.attach(child);
+            return this;
+        }
+        
+        /**
+         * Returns the tree built; after this, no more children may be added.
+         * 
+         * @return The tree.
+         * @throws IllegalStateException If the tree has already been built.
+         */
+        public Tree<T> build() {
+            if (tree == null) {
+                throw new IllegalStateException("Tree already built");
+            }
+            Tree<T> result = tree;
+            tree = null;
+            return result;
+        }
     }
     
 // Iterator
@@ -283,11 +425,12 @@ public class Tree<T> {
     }
     
     private class PreorderIterator implements Iterator<Tree<T>> {
-        Tree<T> position;
-        Tree<T> limit;
+        Cursor<T> cursor;
+        boolean hasNext;
         
         PreorderIterator(Tree<T> root) {
-            position = limit = root;
+            cursor = new Cursor<T>(Order.PREORDER).reset(root);
+            hasNext = cursor.next();
         }
         
         /**
@@ -295,7 +438,7 @@ public class Tree<T> {
          */
         @Override
         public boolean hasNext() {
-            return position != null;
+            return hasNext;
         }
         
         /**
@@ -303,21 +446,9 @@ public class Tree<T> {
          */
         @Override
         public Tree<T> next() {
-            Tree<T> result = position;
-            if (!position.isLeaf()) {
-                position = position.firstChild();
-            } else if (position.hasNextSibling()) {
-                position = position.nextSibling();
-            } else {
-                do {
-                    position = position.parent();
-                } while (!position.hasNextSibling() && position != limit);
-                if (position == limit) {
-                    position = null;
-                } else {
-                    position = position.nextSibling();
-                }
-            }
+            if (!hasNext) throw new NoSuchElementException();
+            Tree<T> result = cursor.node();
+            hasNext = cursor.next();
             return result;
         }
 
@@ -330,6 +461,213 @@ public class Tree<T> {
         }        
     }
     
+    /**
+     * Returns a cursor that visits the nodes of this Tree in the given
+     * order; call its <code>next()</code> to move to the first node.
+     * 
+     * @param order The order in which to visit the nodes.
+     * @return A cursor over this Tree.
+     */
+    public Cursor<T> cursor(Order order) {
+        return new Cursor<T>(order).reset(this);
+    }
+    
+    /**
+     * Walks this Tree depth first, telling the visitor as each node is
+     * entered and left. The walk follows parent links rather than
+     * recursing, so it allocates nothing, and any depth of tree can be
+     * walked. The tree should not be changed during the walk.
+     * 
+     * @param visitor The visitor.
+     */
+    public void walk(TreeVisitor<T> visitor) {
+        Tree<T> node = this;
+        while (true) {
+            if (visitor.enter(node) && !node.children.isEmpty()) {
+                node = node.children.get(0);
+                continue;
+            }
+            while (true) {
+                visitor.leave(node);
+                if (node == this) return;
+                Tree<T> parent = node.parent;
+                if (node.myIndex < parent.children.size() - 1) {
+                    node = parent.children.get(node.myIndex + 1);
+                    break;
+                }
+                node = parent;
+            }
+        }
+    }
+    
+    /**
+     * Visits the nodes of a tree one at a time, in a given order, without
+     * allocating anything per node: depth-first orders follow parent
+     * links, and breadth-first order uses a queue that is kept between
+     * uses. So one cursor can be reset and reused to walk any number
+     * of trees. The tree should not be changed while a cursor is on it.
+     * <pre>
+     * Tree.Cursor&lt;Token&gt; cursor = tree.cursor(Tree.Order.POSTORDER);
+     * while (cursor.next()) {
+     *     ... cursor.node() ... cursor.depth() ...
+     * }</pre>
+     * 
+     * @param <T> The type of value held in each node of the Tree.
+     */
+    public static final class Cursor<T> {
+        private final Order order;
+        private Tree<T> root;     // The root of the tree being walked
+        private Tree<T> node;     // The current node, or null
+        private int depth;        // The distance of the current node from root
+        private boolean started;  // Whether next() has been called since reset
+        private Tree<T>[] queue;  // A ring buffer, for breadth-first order
+        private int head;
+        private int count;
+        private int levelLeft;    // Nodes in the queue on the current level
+        private int nextLevel;    // Nodes in the queue on the level below
+        
+        /**
+         * Creates a cursor that is not on any tree; <code>reset</code>
+         * puts it on one.
+         * 
+         * @param order The order in which to visit nodes.
+         */
+        @SuppressWarnings("unchecked")
+        public Cursor(Order order) {
+            this.order = order;
+            if (order == Order.BREADTH_FIRST) {
+                queue = (Tree<T>[]) new Tree<?>[16];
+            }
+        }
+        
+        /**
+         * Puts this cursor before the first node of the given tree.
+         * 
+         * @param root The root of the tree to walk.
+         * @return This cursor.
+         */
+        public Cursor<T> reset(Tree<T> root) {
+            this.root = root;
+            node = null;
+            depth = 0;
+            started = false;
+            if (queue != null) {
+                Arrays.fill(queue, null);
+                head = count = nextLevel = 0;
+                enqueue(root);
+                levelLeft = 1;
+            }
+            return this;
+        }
+        
+        /**
+         * Moves to the next node.
+         * 
+         * @return <code>true</code> if there is a next node,
+         *         <code>false</code> if every node has been visited.
+         */
+        public boolean next() {
+            if (root == null || (started && node == null)) return false;
+            switch (order) {
+            case PREORDER:
+                node = started ? nextInPreorder(node) : root;
+                break;
+            case POSTORDER:
+                node = started ? nextInPostorder(node) : firstLeaf(root);
+                break;
+            default:
+                node = nextBreadthFirst();
+            }
+            started = true;
+            return node != null;
+        }
+        
+        /**
+         * Returns the node the cursor is on.
+         * 
+         * @return The current node, or <code>null</code> before the
+         *         first call to <code>next()</code> and after the last.
+         */
+        public Tree<T> node() {
+            return node;
+        }
+        
+        /**
+         * Returns the distance of the current node from the root of the
+         * tree being walked (not necessarily the root of its whole tree).
+         * 
+         * @return The depth of the current node.
+         */
+        public int depth() {
+            return depth;
+        }
+        
+        private Tree<T> nextInPreorder(Tree<T> current) {
+            if (!current.children.isEmpty()) {
+                depth++;
+                return current.children.get(0);
+            }
+            while (current != root) {
+                Tree<T> parent = current.parent;
+                if (current.myIndex < parent.children.size() - 1) {
+                    return parent.children.get(current.myIndex + 1);
+                }
+                current = parent;
+                depth--;
+            }
+            return null;
+        }
+        
+        private Tree<T> nextInPostorder(Tree<T> current) {
+            if (current == root) return null;
+            Tree<T> parent = current.parent;
+            if (current.myIndex < parent.children.size() - 1) {
+                return firstLeaf(parent.children.get(current.myIndex + 1));
+            }
+            depth--;
+            return parent;
+        }
+        
+        private Tree<T> firstLeaf(Tree<T> current) {
+            while (!current.children.isEmpty()) {
+                current = current.children.get(0);
+                depth++;
+            }
+            return current;
+        }
+        
+        private Tree<T> nextBreadthFirst() {
+            if (count == 0) return null;
+            if (levelLeft == 0) {
+                depth++;
+                levelLeft = nextLevel;
+                nextLevel = 0;
+            }
+            Tree<T> next = queue[head];
+            queue[head] = null;
+            head = (head + 1) & (queue.length - 1);
+            count--;
+            levelLeft--;
+            ArrayList<Tree<T>> children = next.children;
+            for (int i = 0; i < children.size(); i++) {
+                enqueue(children.get(i));
+            }
+            nextLevel += children.size();
+            return next;
+        }
+        
+        private void enqueue(Tree<T> tree) {
+            if (count == queue.length) {
+                Tree<T>[] larger = Arrays.copyOf(queue, 2 * count);
+                System.arraycopy(queue, 0, larger, count, head);  // unwrap the ring
+                Arrays.fill(larger, 0, head, null);
+                queue = larger;
+            }
+            queue[(head + count) & (queue.length - 1)] = tree;
+            count++;
+        }
+    }
+    
 // I/O
     
     /**
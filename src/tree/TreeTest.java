@@ -0,0 +1,203 @@
+package tree;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TreeTest {
+    private Tree<String> root;
+
+    /**
+     * Builds a(b(d, e(g)), c(f)).
+     */
+    @Before
+    public void setUp() {
+        root = new Tree<String>("a");
+        Tree<String> b = new Tree<String>("b");
+        Tree<String> c = new Tree<String>("c");
+        Tree<String> e = new Tree<String>("e");
+        root.addChildren(b, c);
+        b.addChildren(new Tree<String>("d"), e);
+        e.addChild(new Tree<String>("g"));
+        c.addChild(new Tree<String>("f"));
+    }
+
+    private static String visit(Tree.Cursor<String> cursor) {
+        StringBuilder visited = new StringBuilder();
+        while (cursor.next()) {
+            visited.append(cursor.node().getValue()).append(cursor.depth());
+        }
+        assertFalse(cursor.next());
+        assertNull(cursor.node());
+        return visited.toString();
+    }
+
+    @Test
+    public void testPreorder() {
+        assertEquals("a0b1d2e2g3c1f2", visit(root.cursor(Tree.Order.PREORDER)));
+    }
+
+    @Test
+    public void testPostorder() {
+        assertEquals("d2g3e2b1f2c1a0", visit(root.cursor(Tree.Order.POSTORDER)));
+    }
+
+    @Test
+    public void testBreadthFirst() {
+        assertEquals("a0b1c1d2e2f2g3", visit(root.cursor(Tree.Order.BREADTH_FIRST)));
+    }
+
+    @Test
+    public void testCursorStaysInSubtree() {
+        Tree<String> b = root.firstChild();
+        assertEquals("b0d1e1g2", visit(b.cursor(Tree.Order.PREORDER)));
+        assertEquals("d1g2e1b0", visit(b.cursor(Tree.Order.POSTORDER)));
+        assertEquals("b0d1e1g2", visit(b.cursor(Tree.Order.BREADTH_FIRST)));
+        Tree<String> d = b.firstChild();
+        assertEquals("d0", visit(d.cursor(Tree.Order.PREORDER)));
+        assertEquals("d0", visit(d.cursor(Tree.Order.POSTORDER)));
+    }
+
+    @Test
+    public void testCursorReuse() {
+        Tree<String> wide = new Tree<String>("w");
+        for (int i = 0; i < 100; i++) {
+            Tree<String> child = new Tree<String>("x");
+            child.addChild(new Tree<String>("y"));
+            wide.addChild(child);
+        }
+        Tree.Cursor<String> cursor = new Tree.Cursor<String>(Tree.Order.BREADTH_FIRST);
+        assertFalse(cursor.next());
+        cursor.reset(wide);
+        int count = 0;
+        while (cursor.next()) {
+            count++;
+            assertEquals(count == 1 ? 0 : count <= 101 ? 1 : 2, cursor.depth());
+        }
+        assertEquals(201, count);
+        assertEquals("a0b1c1d2e2f2g3", visit(cursor.reset(root)));
+    }
+
+    @Test
+    public void testIteratorIsPreorder() {
+        StringBuilder visited = new StringBuilder();
+        for (Iterator<Tree<String>> iter = root.iterator(); iter.hasNext();) {
+            visited.append(iter.next().getValue());
+        }
+        assertEquals("abdegcf", visited.toString());
+        Iterator<Tree<String>> leaf = root.firstChild().firstChild().iterator();
+        assertEquals("d", leaf.next().getValue());
+        assertFalse(leaf.hasNext());
+    }
+
+    @Test
+    public void testWalk() {
+        final StringBuilder visited = new StringBuilder();
+        root.walk(new TreeVisitor<String>() {
+            public boolean enter(Tree<String> node) {
+                visited.append('<').append(node.getValue());
+                return !node.getValue().equals("e");
+            }
+            public void leave(Tree<String> node) {
+                visited.append('>');
+            }
+        });
+        assertEquals("<a<b<d><e>><c<f>>>", visited.toString());
+    }
+
+    @Test
+    public void testWalkVeryDeepTree() {
+        Tree<String> deep = new Tree<String>("0");
+        Tree<String> leaf = deep;
+        for (int i = 1; i < 100000; i++) {
+            Tree<String> child = new Tree<String>("" + i);
+            leaf.addChild(child);
+            leaf = child;
+        }
+        final int[] entered = { 0 };
+        deep.walk(new TreeVisitor<String>() {
+            public boolean enter(Tree<String> node) {
+                entered[0]++;
+                return true;
+            }
+            public void leave(Tree<String> node) { }
+        });
+        assertEquals(100000, entered[0]);
+        assertEquals(99999, leaf.depth());
+        assertEquals(99998, leaf.parent().depth());
+    }
+
+    @Test
+    public void testDepthFollowsChanges() {
+        Tree<String> g = root.firstChild().lastChild().firstChild();
+        assertEquals(3, g.depth());
+        Tree<String> f = root.lastChild().firstChild();
+        assertEquals(2, f.depth());
+        g.parent().remove();
+        assertEquals(1, g.depth());
+        f.addChild(g.parent());
+        assertEquals(4, g.depth());
+        assertEquals(0, root.depth());
+    }
+
+    @Test
+    public void testCachedDepthFollowsChanges() {
+        Tree<String> g = root.firstChild().lastChild().firstChild();
+        Tree<String> f = root.lastChild().firstChild();
+        assertFalse(g.isDepthCaching());
+        g.setDepthCaching(true);
+        assertTrue(root.isDepthCaching());
+        assertEquals(3, g.depth());
+        Tree<String> h = new Tree<String>("h");
+        h.addChild(new Tree<String>("i"));
+        g.addChild(h);
+        assertTrue(h.isDepthCaching());
+        assertEquals(5, h.firstChild().depth());
+        Tree<String> e = g.parent();
+        e.remove();
+        assertTrue(e.isDepthCaching());
+        assertEquals(0, e.depth());
+        assertEquals(3, h.firstChild().depth());
+        f.addChild(e);
+        assertEquals(6, h.firstChild().depth());
+        root.setDepthCaching(false);
+        assertFalse(h.isDepthCaching());
+        assertEquals(6, h.firstChild().depth());
+        Tree<String> cached = new Tree<String>("j");
+        cached.setDepthCaching(true);
+        g.addChild(cached);
+        assertFalse(cached.isDepthCaching());
+        assertEquals(5, cached.depth());
+    }
+
+    @Test
+    public void testBuilder() {
+        Tree<String> tree = new Tree.Builder<String>("+")
+                .add(new Tree<String>("1"))
+                .add(new Tree.Builder<String>("*").add(new Tree<String>("2")).build())
+                .build();
+        assertEquals("+(1, *(2))", tree.toString());
+        assertEquals(2, tree.lastChild().firstChild().depth());
+        assertSame(tree, tree.lastChild().parent());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBuilderRejectsChildWithParent() {
+        new Tree.Builder<String>("x").add(root.firstChild());
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testBuilderIsUsedOnce() {
+        Tree.Builder<String> builder = new Tree.Builder<String>("x");
+        builder.build();
+        builder.add(new Tree<String>("y"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddChildRejectsAncestor() {
+        root.firstChild().firstChild().addChild(root);
+    }
+}
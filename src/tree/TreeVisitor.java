@@ -0,0 +1,26 @@
+package tree;
+
+/**
+ * Visits the nodes of a <code>Tree</code> as it is walked depth first.
+ *
+ * @param <T> The type of value held in each node of the Tree.
+ */
+public interface TreeVisitor<T> {
+
+    /**
+     * Called when the walk reaches a node, before any of its children.
+     *
+     * @param node The node.
+     * @return <code>true</code> to visit the node's children,
+     *         <code>false</code> to skip them.
+     */
+    boolean enter(Tree<T> node);
+
+    /**
+     * Called when the walk leaves a node, after its children (if they
+     * were visited).
+     *
+     * @param node The node.
+     */
+    void leave(Tree<T> node);
+}
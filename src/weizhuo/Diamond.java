@@ -62,4 +62,15 @@ public class Diamond extends Piece{
 
     }
 
+    /**
+     * Every diamond of the same color looks the same, so it need only be
+     * drawn once for each size.
+     * 
+     * @return The color of this diamond.
+     */
+    @Override
+    protected Object getAppearance() {
+        return color;
+    }
+
 }